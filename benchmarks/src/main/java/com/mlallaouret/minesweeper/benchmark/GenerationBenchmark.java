@@ -0,0 +1,91 @@
+package com.mlallaouret.minesweeper.benchmark;
+
+import com.mlallaouret.minesweeper.Grid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Board generation: mine placement and mine around number calculation
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenerationBenchmark {
+
+    @Param({"100", "1000", "2000"})
+    public int size;
+
+    @Param({"0.01", "0.15", "0.6"})
+    public double density;
+
+    private Grid grid;
+
+    @Setup(Level.Trial)
+    public void createGrid() {
+        grid = new Grid(size, size, (int) (size * (long) size * density), 42L);
+        grid.placeMines();
+    }
+
+    @Benchmark
+    public Grid calculateMineAroundNumber() {
+        grid.calculateMineAroundNumber();
+        return grid;
+    }
+
+    @Benchmark
+    public Grid calculateMineAroundNumberParallel() {
+        grid.calculateMineAroundNumber(ForkJoinPool.commonPool());
+        return grid;
+    }
+
+    /**
+     * Mine placement needs an empty grid for each call, it is cleared in the benchmark itself as a setup per
+     * invocation would cost more than the small grids measured; {@link #clearGrid(EmptyGrid)} gives the cost of the
+     * clearing alone.
+     */
+    @State(Scope.Thread)
+    public static class EmptyGrid {
+
+        private Grid grid;
+
+        @Setup(Level.Trial)
+        public void createGrid(GenerationBenchmark benchmark) {
+            grid = new Grid(benchmark.size, benchmark.size,
+                    (int) (benchmark.size * (long) benchmark.size * benchmark.density), 42L);
+        }
+
+        void clear() {
+            Arrays.fill(grid.getCells(), (byte) 0);
+        }
+    }
+
+    @Benchmark
+    public Grid placeMines(EmptyGrid emptyGrid) {
+        emptyGrid.clear();
+        emptyGrid.grid.placeMines();
+        return emptyGrid.grid;
+    }
+
+    @Benchmark
+    public Grid clearGrid(EmptyGrid emptyGrid) {
+        emptyGrid.clear();
+        return emptyGrid.grid;
+    }
+}
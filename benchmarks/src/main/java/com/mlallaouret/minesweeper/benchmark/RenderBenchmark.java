@@ -0,0 +1,75 @@
+package com.mlallaouret.minesweeper.benchmark;
+
+import com.mlallaouret.minesweeper.Grid;
+import com.mlallaouret.minesweeper.GridRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drawing of a half revealed grid, to an output discarding the bytes
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+    @Param({"100", "500", "2000"})
+    public int size;
+
+    @Param({"0.05", "0.15"})
+    public double density;
+
+    private Grid grid;
+    private GridRenderer gridRenderer;
+    private OutputStream out;
+
+    @Setup(Level.Trial)
+    public void createGrid(final Blackhole blackhole) {
+        grid = new Grid(size, size, (int) (size * (long) size * density), 42L);
+        grid.placeMines();
+        grid.calculateMineAroundNumber();
+        for (int index = 0; index < grid.getCells().length / 2; index++) {
+            grid.revealCells(grid.widthOf(index), grid.heightOf(index));
+        }
+        gridRenderer = new GridRenderer();
+        out = new OutputStream() {
+            @Override
+            public void write(int b) {
+                blackhole.consume(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                blackhole.consume(len);
+            }
+        };
+    }
+
+    @Benchmark
+    public void renderGrid() throws IOException {
+        gridRenderer.render(grid, out);
+    }
+
+    @Benchmark
+    public void renderViewport() throws IOException {
+        gridRenderer.render(grid, out, size / 2, size / 2, 80, 40);
+    }
+}
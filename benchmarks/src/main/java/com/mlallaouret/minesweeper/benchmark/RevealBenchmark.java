@@ -0,0 +1,118 @@
+package com.mlallaouret.minesweeper.benchmark;
+
+import com.mlallaouret.minesweeper.Grid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flood fill of the largest open area of the grid, and neighbour lookups.
+ * With a density of 0 the first click opens the whole grid, which is the worst case of the flood fill.
+ * The flood fill time includes hiding the grid again, measured alone by resetGrid.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RevealBenchmark {
+
+    @Param({"100", "1000", "2000"})
+    public int size;
+
+    @Param({"0.0", "0.05", "0.15"})
+    public double density;
+
+    private Grid grid;
+    private final int[] neighbours = new int[8];
+
+    @Setup(Level.Trial)
+    public void createGrid() {
+        grid = newGrid(size, density);
+    }
+
+    private static Grid newGrid(int size, double density) {
+        Grid grid = new Grid(size, size, (int) (size * (long) size * density), 42L);
+        grid.placeMines();
+        grid.calculateMineAroundNumber();
+        return grid;
+    }
+
+    /**
+     * A grid which has to be hidden again before each flood fill. The cells are copied back in the benchmark itself,
+     * a setup per invocation would cost more than the small fills measured; {@link #resetGrid(HiddenGrid)} gives the
+     * cost of the copy alone.
+     */
+    @State(Scope.Thread)
+    public static class HiddenGrid {
+
+        private Grid grid;
+        private byte[] initialCells;
+        private int initialRemainingEmptyCell;
+        private int revealHeight;
+        private int revealWidth;
+
+        @Setup(Level.Trial)
+        public void createGrid(RevealBenchmark benchmark) {
+            grid = newGrid(benchmark.size, benchmark.density);
+            initialCells = grid.getCells().clone();
+            initialRemainingEmptyCell = grid.getRemainingEmptyCell();
+
+            int largestArea = -1;
+            for (int index = 0; index < initialCells.length; index++) {
+                int height = grid.heightOf(index);
+                int width = grid.widthOf(index);
+                if (!grid.isRevealed(width, height) && !grid.isMineInCell(width, height)
+                        && grid.getMineAroundNumber(width, height) == 0) {
+                    int area = grid.revealCells(width, height);
+                    if (area > largestArea) {
+                        largestArea = area;
+                        revealHeight = height;
+                        revealWidth = width;
+                    }
+                }
+            }
+        }
+
+        void reset() {
+            System.arraycopy(initialCells, 0, grid.getCells(), 0, initialCells.length);
+            grid.setRemainingEmptyCell(initialRemainingEmptyCell);
+        }
+    }
+
+    @Benchmark
+    public int revealLargestArea(HiddenGrid hiddenGrid) {
+        hiddenGrid.reset();
+        return hiddenGrid.grid.revealCells(hiddenGrid.revealWidth, hiddenGrid.revealHeight);
+    }
+
+    @Benchmark
+    public Grid resetGrid(HiddenGrid hiddenGrid) {
+        hiddenGrid.reset();
+        return hiddenGrid.grid;
+    }
+
+    @Benchmark
+    public long neighbourIndexesOfAllCells() {
+        long sum = 0;
+        for (int index = 0, end = grid.getCells().length; index < end; index++) {
+            int neighbourNumber = grid.getNeighbourIndexes(index, neighbours);
+            for (int i = 0; i < neighbourNumber; i++) {
+                sum += neighbours[i];
+            }
+        }
+        return sum;
+    }
+}
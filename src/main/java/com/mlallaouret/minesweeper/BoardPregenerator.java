@@ -0,0 +1,192 @@
+package com.mlallaouret.minesweeper;
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generate boards in the background, so a new game starts on a board which is already placed and counted.
+ * <p>
+ * Each board size added keeps a bounded queue of ready boards, refilled by a pool of worker threads each time a
+ * board is taken. {@link #take(int, int, int)} never waits: when no board of the size is ready, the board is
+ * generated in the calling thread. The boards are drawn from random seeds, a game which must replay a given seed
+ * generates its board itself.
+ */
+public class BoardPregenerator implements Closeable {
+    private static final int[][] STANDARD_DIFFICULTIES = {{9, 9, 10}, {16, 16, 40}, {30, 16, 99}};
+
+    private final int boardsPerSize;
+    private final GridPool gridPool;
+    private final ExecutorService workers;
+    private volatile BoardQueue[] boardQueues = new BoardQueue[0];
+    private volatile boolean closed;
+
+    /**
+     * @param workerNumber  the number of threads generating the boards
+     * @param boardsPerSize the number of boards kept ready for each size
+     * @param gridPool      the pool giving the grids of the boards
+     */
+    public BoardPregenerator(int workerNumber, int boardsPerSize, GridPool gridPool) {
+        if (workerNumber <= 0 || boardsPerSize <= 0) {
+            throw new IllegalArgumentException("The number of workers and boards must be positive");
+        }
+        this.boardsPerSize = boardsPerSize;
+        this.gridPool = gridPool;
+        this.workers = Executors.newFixedThreadPool(workerNumber,
+                GameServer.daemonThreadFactory("minesweeper-pregenerator"));
+    }
+
+    /**
+     * Start keeping boards ready for a size, a size has a single number of mines
+     *
+     * @param gridWidth     the width of the boards
+     * @param gridHeight    the height of the boards
+     * @param numberOfMines the number of mines of the boards
+     * @throws IllegalArgumentException if the size is already added with another number of mines
+     */
+    public void addBoardSize(int gridWidth, int gridHeight, int numberOfMines) {
+        if (gridWidth <= 0 || gridHeight <= 0 || numberOfMines <= 0
+                || numberOfMines >= (long) gridWidth * gridHeight) {
+            throw new IllegalArgumentException("Wrong grid dimensions or mine number");
+        }
+        BoardQueue queue = addQueue(gridWidth, gridHeight, numberOfMines);
+        if (queue.numberOfMines != numberOfMines) {
+            throw new IllegalArgumentException("Board size already added with another mine number");
+        }
+        queue.refill();
+    }
+
+    /**
+     * Add the beginner, intermediate and expert boards
+     */
+    public void addStandardDifficulties() {
+        for (int[] difficulty : STANDARD_DIFFICULTIES) {
+            addBoardSize(difficulty[0], difficulty[1], difficulty[2]);
+        }
+    }
+
+    /**
+     * Take a ready board, or generate it in the calling thread if there is none
+     *
+     * @param gridWidth     the width of the board
+     * @param gridHeight    the height of the board
+     * @param numberOfMines the number of mines of the board
+     * @return a board with its mines placed and counted
+     */
+    public Grid take(int gridWidth, int gridHeight, int numberOfMines) {
+        BoardQueue queue = find(gridWidth, gridHeight);
+        if (queue != null && queue.numberOfMines == numberOfMines) {
+            Grid grid = queue.ready.poll();
+            if (grid != null) {
+                queue.scheduled.decrementAndGet();
+                queue.refill();
+                return grid;
+            }
+        }
+        return generate(gridWidth, gridHeight, numberOfMines);
+    }
+
+    /**
+     * @return the number of boards ready for a size
+     */
+    public int getReadyBoardNumber(int gridWidth, int gridHeight) {
+        BoardQueue queue = find(gridWidth, gridHeight);
+        return queue == null ? 0 : queue.ready.size();
+    }
+
+    /**
+     * Stop generating boards, the boards ready can still be taken
+     */
+    @Override
+    public void close() {
+        closed = true;
+        workers.shutdownNow();
+    }
+
+    private BoardQueue find(int gridWidth, int gridHeight) {
+        BoardQueue[] queues = boardQueues;
+        for (int i = 0; i < queues.length; i++) {
+            if (queues[i].gridWidth == gridWidth && queues[i].gridHeight == gridHeight) {
+                return queues[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Add the queue of a size, the array is copied so it is read without lock
+     *
+     * @return the queue of the size, the one already added if any
+     */
+    private synchronized BoardQueue addQueue(int gridWidth, int gridHeight, int numberOfMines) {
+        BoardQueue queue = find(gridWidth, gridHeight);
+        if (queue != null) {
+            return queue;
+        }
+        BoardQueue[] queues = boardQueues;
+        BoardQueue[] newQueues = new BoardQueue[queues.length + 1];
+        System.arraycopy(queues, 0, newQueues, 0, queues.length);
+        queue = new BoardQueue(gridWidth, gridHeight, numberOfMines);
+        newQueues[queues.length] = queue;
+        boardQueues = newQueues;
+        return queue;
+    }
+
+    private Grid generate(int gridWidth, int gridHeight, int numberOfMines) {
+        Grid grid = gridPool.acquire(gridWidth, gridHeight, numberOfMines, ThreadLocalRandom.current().nextLong());
+        grid.placeMines();
+        grid.calculateMineAroundNumber();
+        return grid;
+    }
+
+    /**
+     * The boards ready for a size, scheduled counts them with the boards being generated so the queue never
+     * gets more than boardsPerSize boards
+     */
+    private final class BoardQueue implements Runnable {
+        private final int gridWidth;
+        private final int gridHeight;
+        private final int numberOfMines;
+        private final ArrayBlockingQueue<Grid> ready = new ArrayBlockingQueue<Grid>(boardsPerSize);
+        private final AtomicInteger scheduled = new AtomicInteger();
+
+        BoardQueue(int gridWidth, int gridHeight, int numberOfMines) {
+            this.gridWidth = gridWidth;
+            this.gridHeight = gridHeight;
+            this.numberOfMines = numberOfMines;
+        }
+
+        void refill() {
+            while (!closed) {
+                int count = scheduled.get();
+                if (count >= boardsPerSize) {
+                    return;
+                }
+                if (scheduled.compareAndSet(count, count + 1)) {
+                    try {
+                        workers.execute(this);
+                    } catch (RejectedExecutionException e) {
+                        // Closed meanwhile
+                        return;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            boolean offered = false;
+            try {
+                offered = !closed && ready.offer(generate(gridWidth, gridHeight, numberOfMines));
+            } finally {
+                if (!offered) {
+                    scheduled.decrementAndGet();
+                }
+            }
+        }
+    }
+}
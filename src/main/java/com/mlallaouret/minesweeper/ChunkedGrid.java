@@ -0,0 +1,301 @@
+package com.mlallaouret.minesweeper;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Represent a play grid too large to be allocated at once.
+ * <p>
+ * The grid is cut in chunks of 64 x 64 cells which are only created when a cell inside them, or next to them, is
+ * touched. The mines of a chunk are placed from the grid seed and the chunk coordinates only, so a chunk is the same
+ * whatever the order in which the grid is explored, and the memory used follows the explored area.
+ * Cells use the same one byte layout as {@link Grid}.
+ */
+public class ChunkedGrid {
+    static final int CHUNK_SHIFT = 6;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    static final int CHUNK_CELLS = CHUNK_SIZE * CHUNK_SIZE;
+
+    private static final int HALO_SIZE = CHUNK_SIZE + 2;
+    private static final int INITIAL_REVEAL_STACK_CAPACITY = 64;
+
+    private final int gridHeight;
+    private final int gridWidth;
+    private final int minesPerChunk;
+    private final long seed;
+    private final long numberOfMines;
+    private final Map<Long, Chunk> chunks = new HashMap<Long, Chunk>();
+    private final byte[] halo = new byte[HALO_SIZE * HALO_SIZE];
+    private long revealedEmptyCells;
+    private long[] revealStack;
+    private long lastChunkKey = -1;
+    private Chunk lastChunk;
+
+    /**
+     * @param gridWidth     the width of the grid
+     * @param gridHeight    the height of the grid
+     * @param minesPerChunk the number of mines in a full chunk of 64 x 64 cells, the chunks cut by the grid border
+     *                      get a proportional number of mines
+     * @param seed          the seed the mines of every chunk are derived from
+     */
+    public ChunkedGrid(int gridWidth, int gridHeight, int minesPerChunk, long seed) {
+        if (gridWidth <= 0 || gridHeight <= 0 || minesPerChunk < 0 || minesPerChunk >= CHUNK_CELLS) {
+            throw new IllegalArgumentException("Wrong grid dimensions or mine number");
+        }
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        this.minesPerChunk = minesPerChunk;
+        this.seed = seed;
+        this.numberOfMines = countMines();
+    }
+
+    /**
+     * Verify is the cell is a mine, creating its chunk if needed
+     *
+     * @param width  the width coordinate of the cell to verify
+     * @param height the height coordinate of the cell to verify
+     * @return true if there is a mine in the cell, else false
+     */
+    public boolean isMineInCell(int width, int height) {
+        checkCoordinates(height, width);
+        return (getChunk(height >>> CHUNK_SHIFT, width >>> CHUNK_SHIFT).cells[cellIndex(height, width)]
+                & Grid.MINE) != 0;
+    }
+
+    /**
+     * Verify if the cell has been revealed to the player, without creating any chunk
+     *
+     * @param width  the width coordinate of the cell to verify
+     * @param height the height coordinate of the cell to verify
+     * @return true if the cell is revealed, else false
+     */
+    public boolean isRevealed(int width, int height) {
+        checkCoordinates(height, width);
+        Chunk chunk = chunks.get(chunkKey(height >>> CHUNK_SHIFT, width >>> CHUNK_SHIFT));
+        return chunk != null && (chunk.cells[cellIndex(height, width)] & Grid.REVEALED) != 0;
+    }
+
+    /**
+     * Retrieve the number of mines around a cell, creating the chunks around it if needed
+     *
+     * @param width  the width coordinate of the cell
+     * @param height the height coordinate of the cell
+     * @return the number of mines in the neighbour cells
+     */
+    public int getMineAroundNumber(int width, int height) {
+        checkCoordinates(height, width);
+        return getCountedChunk(height >>> CHUNK_SHIFT, width >>> CHUNK_SHIFT).cells[cellIndex(height, width)]
+                & Grid.MINE_AROUND_MASK;
+    }
+
+    /**
+     * Reveal a cell to the player, and the empty area around it with an iterative flood fill.
+     *
+     * @param width  the width coordinate of the cell to reveal
+     * @param height the height coordinate of the cell to reveal
+     * @return the number of cells revealed by this call
+     */
+    public long revealCells(int width, int height) {
+        checkCoordinates(height, width);
+        Chunk chunk = getCountedChunk(height >>> CHUNK_SHIFT, width >>> CHUNK_SHIFT);
+        int index = cellIndex(height, width);
+        if ((chunk.cells[index] & Grid.REVEALED) != 0) {
+            return 0;
+        }
+        chunk.cells[index] |= Grid.REVEALED;
+        long revealed = 1;
+        int size = push(0, height, width);
+        while (size > 0) {
+            long coordinate = revealStack[--size];
+            int cellHeight = (int) (coordinate >>> 32);
+            int cellWidth = (int) coordinate;
+            int value = getCountedChunk(cellHeight >>> CHUNK_SHIFT, cellWidth >>> CHUNK_SHIFT)
+                    .cells[cellIndex(cellHeight, cellWidth)];
+            if ((value & Grid.MINE) != 0) {
+                continue;
+            }
+            revealedEmptyCells++;
+            if ((value & Grid.MINE_AROUND_MASK) != 0) {
+                continue;
+            }
+            int maxHeight = Math.min(cellHeight + 1, gridHeight - 1);
+            int maxWidth = Math.min(cellWidth + 1, gridWidth - 1);
+            for (int i = Math.max(cellHeight - 1, 0); i <= maxHeight; i++) {
+                for (int j = Math.max(cellWidth - 1, 0); j <= maxWidth; j++) {
+                    Chunk neighbourChunk = getCountedChunk(i >>> CHUNK_SHIFT, j >>> CHUNK_SHIFT);
+                    int neighbourIndex = cellIndex(i, j);
+                    if ((neighbourChunk.cells[neighbourIndex] & Grid.REVEALED) == 0) {
+                        neighbourChunk.cells[neighbourIndex] |= Grid.REVEALED;
+                        revealed++;
+                        size = push(size, i, j);
+                    }
+                }
+            }
+        }
+        return revealed;
+    }
+
+    private int push(int size, int height, int width) {
+        if (revealStack == null) {
+            revealStack = new long[INITIAL_REVEAL_STACK_CAPACITY];
+        } else if (size == revealStack.length) {
+            revealStack = Arrays.copyOf(revealStack, size * 2);
+        }
+        revealStack[size] = ((long) height << 32) | width;
+        return size + 1;
+    }
+
+    /**
+     * Retrieve a chunk, creating it with its mines if it does not exist yet
+     */
+    private Chunk getChunk(int chunkHeight, int chunkWidth) {
+        long key = chunkKey(chunkHeight, chunkWidth);
+        if (key == lastChunkKey) {
+            return lastChunk;
+        }
+        Chunk chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = new Chunk();
+            placeMines(chunk, chunkHeight, chunkWidth);
+            chunks.put(key, chunk);
+        }
+        lastChunkKey = key;
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    /**
+     * Retrieve a chunk with its mine around numbers calculated, which needs the mines of the chunks around it
+     */
+    private Chunk getCountedChunk(int chunkHeight, int chunkWidth) {
+        Chunk chunk = getChunk(chunkHeight, chunkWidth);
+        if (!chunk.counted) {
+            calculateMineAroundNumber(chunk, chunkHeight, chunkWidth);
+        }
+        return chunk;
+    }
+
+    private void placeMines(Chunk chunk, int chunkHeight, int chunkWidth) {
+        int chunkCellHeight = Math.min(CHUNK_SIZE, gridHeight - (chunkHeight << CHUNK_SHIFT));
+        int chunkCellWidth = Math.min(CHUNK_SIZE, gridWidth - (chunkWidth << CHUNK_SHIFT));
+        int mines = chunkMines(chunkCellHeight, chunkCellWidth);
+        SplittableRandom random = new SplittableRandom(seed ^ (chunkKey(chunkHeight, chunkWidth) * 0x9E3779B97F4A7C15L));
+        int placedMines = 0;
+        while (placedMines < mines) {
+            int index = (random.nextInt(chunkCellHeight) << CHUNK_SHIFT) | random.nextInt(chunkCellWidth);
+            if ((chunk.cells[index] & Grid.MINE) == 0) {
+                chunk.cells[index] |= Grid.MINE;
+                placedMines++;
+            }
+        }
+    }
+
+    /**
+     * Copy the mines of the chunk and of the border of the chunks around it in the halo, then count them
+     */
+    private void calculateMineAroundNumber(Chunk chunk, int chunkHeight, int chunkWidth) {
+        Arrays.fill(halo, (byte) 0);
+        int firstHeight = (chunkHeight << CHUNK_SHIFT) - 1;
+        int firstWidth = (chunkWidth << CHUNK_SHIFT) - 1;
+        for (int i = 0; i < HALO_SIZE; i++) {
+            int height = firstHeight + i;
+            if (height < 0 || height >= gridHeight) {
+                continue;
+            }
+            for (int j = 0; j < HALO_SIZE; j++) {
+                int width = firstWidth + j;
+                if (width < 0 || width >= gridWidth) {
+                    continue;
+                }
+                Chunk haloChunk = i > 0 && i <= CHUNK_SIZE && j > 0 && j <= CHUNK_SIZE
+                        ? chunk : getChunk(height >>> CHUNK_SHIFT, width >>> CHUNK_SHIFT);
+                halo[i * HALO_SIZE + j] = (byte) ((haloChunk.cells[cellIndex(height, width)] & Grid.MINE) >>> 4);
+            }
+        }
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            for (int j = 0; j < CHUNK_SIZE; j++) {
+                int center = (i + 1) * HALO_SIZE + j + 1;
+                int count = halo[center - HALO_SIZE - 1] + halo[center - HALO_SIZE] + halo[center - HALO_SIZE + 1]
+                        + halo[center - 1] + halo[center + 1]
+                        + halo[center + HALO_SIZE - 1] + halo[center + HALO_SIZE] + halo[center + HALO_SIZE + 1];
+                int index = (i << CHUNK_SHIFT) | j;
+                chunk.cells[index] = (byte) ((chunk.cells[index] & ~Grid.MINE_AROUND_MASK) | count);
+            }
+        }
+        chunk.counted = true;
+    }
+
+    private int chunkMines(int chunkCellHeight, int chunkCellWidth) {
+        return (int) ((long) minesPerChunk * chunkCellHeight * chunkCellWidth / CHUNK_CELLS);
+    }
+
+    /**
+     * Sum the mines of all the chunks, which only differ on the last chunk row and column
+     */
+    private long countMines() {
+        long fullChunkHeights = gridHeight >>> CHUNK_SHIFT;
+        long fullChunkWidths = gridWidth >>> CHUNK_SHIFT;
+        int lastHeight = gridHeight & CHUNK_MASK;
+        int lastWidth = gridWidth & CHUNK_MASK;
+        return fullChunkHeights * fullChunkWidths * minesPerChunk
+                + fullChunkHeights * chunkMines(CHUNK_SIZE, lastWidth)
+                + fullChunkWidths * chunkMines(lastHeight, CHUNK_SIZE)
+                + chunkMines(lastHeight, lastWidth);
+    }
+
+    private static int cellIndex(int height, int width) {
+        return ((height & CHUNK_MASK) << CHUNK_SHIFT) | (width & CHUNK_MASK);
+    }
+
+    private static long chunkKey(int chunkHeight, int chunkWidth) {
+        return ((long) chunkHeight << 32) | chunkWidth;
+    }
+
+    private void checkCoordinates(int height, int width) {
+        if (height < 0 || height >= this.gridHeight || width < 0 || width >= this.gridWidth) {
+            throw new IllegalArgumentException("Wrong grid Coordinates");
+        }
+    }
+
+    public long getRemainingEmptyCell() {
+        return (long) gridHeight * gridWidth - numberOfMines - revealedEmptyCells;
+    }
+
+    /**
+     * @return the number of chunks created so far, each one using about 4 KB
+     */
+    public int getChunkNumber() {
+        return chunks.size();
+    }
+
+    public int getGridHeight() {
+        return gridHeight;
+    }
+
+    public int getGridWidth() {
+        return gridWidth;
+    }
+
+    public long getNumberOfMines() {
+        return numberOfMines;
+    }
+
+    public int getMinesPerChunk() {
+        return minesPerChunk;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * 64 x 64 cells of the grid, stored row after row
+     */
+    static final class Chunk {
+        final byte[] cells = new byte[CHUNK_CELLS];
+        boolean counted;
+    }
+}
@@ -0,0 +1,287 @@
+package com.mlallaouret.minesweeper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Play games driven by a stream of compact text commands, for bots sending millions of moves.
+ * <p>
+ * One command per line, the coordinates being x (width) then y (height):
+ * <pre>
+ * N width height mines [seed] -&gt; OK
+ * R x y                       -&gt; result revealedCells     reveal
+ * F x y                       -&gt; result 0                 flag or unflag
+ * C x y                       -&gt; result revealedCells     chord
+ * S                           -&gt; status remainingEmptyCell
+ * </pre>
+ * The result is the first letter of the {@link MoveResult}: I, R, E, W, F or U, and the status the first letter of
+ * the {@link GameStatus}: P, W or L. A wrong command is answered with ERROR followed by a message.
+ * <p>
+ * The commands are parsed in place in the input buffer and the answers written in an output buffer, so a move
+ * allocates nothing. The answers are sent when the output buffer is full or before waiting for more input, so
+ * pipelined commands are answered in large writes while an interactive client still gets each answer.
+ */
+public class CommandStream {
+    static final int BUFFER_SIZE = 1 << 16;
+
+    private static final int MAX_ANSWER_SIZE = 128;
+
+    private final ReadableByteChannel in;
+    private final WritableByteChannel out;
+    private final byte[] input = new byte[BUFFER_SIZE];
+    private final ByteBuffer inputBuffer = ByteBuffer.wrap(input);
+    private final byte[] output = new byte[BUFFER_SIZE];
+    private final ByteBuffer outputBuffer = ByteBuffer.wrap(output);
+    private int outputPosition;
+    private int cursor;
+    private int lineEnd;
+    private boolean wrongNumber;
+    private final GridPool gridPool = new GridPool(1, 1);
+    private GameEngine gameEngine;
+    private long commandNumber;
+
+    public CommandStream(ReadableByteChannel in, WritableByteChannel out) {
+        this.in = in;
+        this.out = out;
+    }
+
+    /**
+     * Execute the commands until the end of the input
+     *
+     * @return the number of commands executed
+     * @throws IOException if the channels can't be read or written
+     */
+    public long run() throws IOException {
+        int start = 0;
+        int end = 0;
+        // Set while the rest of a line too long is dropped, up to its line separator
+        boolean discarding = false;
+        while (true) {
+            for (int i = start; i < end; i++) {
+                if (input[i] == '\n') {
+                    if (discarding) {
+                        discarding = false;
+                    } else {
+                        execute(start, i);
+                    }
+                    start = i + 1;
+                }
+            }
+            // Keep the incomplete last line at the start of the buffer
+            System.arraycopy(input, start, input, 0, end - start);
+            end -= start;
+            start = 0;
+            if (end == input.length) {
+                if (!discarding) {
+                    writeError("Line too long");
+                    discarding = true;
+                }
+                end = 0;
+            }
+
+            flush();
+            inputBuffer.limit(input.length).position(end);
+            int read = in.read(inputBuffer);
+            if (read < 0) {
+                if (end > 0 && !discarding) {
+                    execute(0, end);
+                }
+                flush();
+                return commandNumber;
+            }
+            end += read;
+        }
+    }
+
+    /**
+     * Execute the command of a line, without its line separator
+     */
+    private void execute(int from, int to) throws IOException {
+        lineEnd = to > from && input[to - 1] == '\r' ? to - 1 : to;
+        cursor = from;
+        skipSpaces();
+        if (cursor == lineEnd) {
+            return;
+        }
+        commandNumber++;
+        if (outputPosition + MAX_ANSWER_SIZE > output.length) {
+            flush();
+        }
+        byte command = input[cursor++];
+        wrongNumber = false;
+        try {
+            switch (command) {
+                case 'N':
+                    newGame();
+                    break;
+                case 'R':
+                case 'F':
+                case 'C':
+                    play(command);
+                    break;
+                case 'S':
+                    status();
+                    break;
+                default:
+                    writeError("Unknown command");
+            }
+        } catch (IllegalArgumentException e) {
+            writeError(e.getMessage());
+        }
+    }
+
+    private void newGame() {
+        int gridWidth = nextInt();
+        int gridHeight = nextInt();
+        int numberOfMines = nextInt();
+        skipSpaces();
+        long seed = cursor < lineEnd ? nextNumber() : ThreadLocalRandom.current().nextLong();
+        if (!endOfLine()) {
+            return;
+        }
+        long cellNumber = (long) gridWidth * gridHeight;
+        if (gridWidth <= 0 || gridHeight <= 0 || numberOfMines <= 0 || numberOfMines >= cellNumber
+                || cellNumber > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Wrong grid dimensions or mine number");
+        }
+        // The grid of the previous game is reused when the new one has the same size
+        if (gameEngine != null) {
+            gridPool.release(gameEngine.getGrid());
+        }
+        gameEngine = GameEngine.newGame(gridPool, gridWidth, gridHeight, numberOfMines, seed);
+        output[outputPosition++] = 'O';
+        output[outputPosition++] = 'K';
+        output[outputPosition++] = '\n';
+    }
+
+    private void play(byte command) {
+        int x = nextInt();
+        int y = nextInt();
+        if (!endOfLine() || !hasGame()) {
+            return;
+        }
+        MoveResult result;
+        if (command == 'R') {
+            result = gameEngine.reveal(x, y);
+        } else if (command == 'F') {
+            result = gameEngine.flag(x, y);
+        } else {
+            result = gameEngine.chord(x, y);
+        }
+        output[outputPosition++] = (byte) result.name().charAt(0);
+        output[outputPosition++] = ' ';
+        writeNumber(gameEngine.getLastRevealedCells());
+        output[outputPosition++] = '\n';
+    }
+
+    private void status() {
+        if (!endOfLine() || !hasGame()) {
+            return;
+        }
+        output[outputPosition++] = (byte) gameEngine.status().name().charAt(0);
+        output[outputPosition++] = ' ';
+        writeNumber(gameEngine.getGrid().getRemainingEmptyCell());
+        output[outputPosition++] = '\n';
+    }
+
+    private boolean hasGame() {
+        if (gameEngine == null) {
+            writeError("No game");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Verify the line was parsed without error up to its end, writing the error otherwise
+     */
+    private boolean endOfLine() {
+        skipSpaces();
+        if (wrongNumber) {
+            writeError("Not a number");
+            return false;
+        }
+        if (cursor != lineEnd) {
+            writeError("Too many arguments");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Parse the next decimal number of the line, wrongNumber is set if there is none or it does not fit in a long
+     */
+    private long nextNumber() {
+        skipSpaces();
+        boolean negative = cursor < lineEnd && input[cursor] == '-';
+        if (negative) {
+            cursor++;
+        }
+        int firstDigit = cursor;
+        // Accumulated negatively like Long.parseLong, as Long.MIN_VALUE has no positive counterpart
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long number = 0;
+        while (cursor < lineEnd && input[cursor] >= '0' && input[cursor] <= '9') {
+            int digit = input[cursor++] - '0';
+            if (number < limit / 10 || number * 10 < limit + digit) {
+                wrongNumber = true;
+            }
+            number = number * 10 - digit;
+        }
+        if (cursor == firstDigit || (cursor < lineEnd && input[cursor] != ' ' && input[cursor] != '\t')) {
+            wrongNumber = true;
+        }
+        return negative ? number : -number;
+    }
+
+    /**
+     * Parse the next number of the line, wrongNumber is set if there is none or it does not fit in an int
+     */
+    private int nextInt() {
+        long number = nextNumber();
+        if (number < Integer.MIN_VALUE || number > Integer.MAX_VALUE) {
+            wrongNumber = true;
+        }
+        return (int) number;
+    }
+
+    private void skipSpaces() {
+        while (cursor < lineEnd && (input[cursor] == ' ' || input[cursor] == '\t')) {
+            cursor++;
+        }
+    }
+
+    private void writeNumber(int number) {
+        int digits = 1;
+        for (int i = number; i >= 10; i /= 10) {
+            digits++;
+        }
+        for (int i = outputPosition + digits - 1; i >= outputPosition; i--) {
+            output[i] = (byte) ('0' + number % 10);
+            number /= 10;
+        }
+        outputPosition += digits;
+    }
+
+    /**
+     * Write an error answer, cut if it is longer than the space left, errors are rare so they may allocate
+     */
+    private void writeError(String message) {
+        byte[] answer = (GameServer.ERROR + " " + message + "\n").getBytes(StandardCharsets.US_ASCII);
+        int length = Math.min(answer.length, output.length - outputPosition);
+        System.arraycopy(answer, 0, output, outputPosition, length);
+        outputPosition += length;
+    }
+
+    private void flush() throws IOException {
+        outputBuffer.limit(outputPosition).position(0);
+        while (outputBuffer.hasRemaining()) {
+            out.write(outputBuffer);
+        }
+        outputPosition = 0;
+    }
+}
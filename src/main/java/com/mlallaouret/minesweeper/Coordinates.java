@@ -0,0 +1,33 @@
+package com.mlallaouret.minesweeper;
+
+/**
+ * Coordinates of a cell chosen by the player packed in a long, x (width) in the high int and y (height) in the low
+ * int, so they are passed around without boxing and always read in the same order.
+ */
+public final class Coordinates {
+
+    private Coordinates() {
+    }
+
+    public static long of(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return the width coordinate
+     */
+    public static int x(long coordinates) {
+        return (int) (coordinates >> 32);
+    }
+
+    /**
+     * @return the height coordinate
+     */
+    public static int y(long coordinates) {
+        return (int) coordinates;
+    }
+
+    public static String toString(long coordinates) {
+        return "(" + x(coordinates) + ", " + y(coordinates) + ")";
+    }
+}
@@ -1,8 +1,8 @@
 package com.mlallaouret.minesweeper;
 
 
-import org.apache.commons.lang3.tuple.Pair;
-
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -21,41 +21,64 @@ public class Game {
 
     private Grid playGrid;
 
+    private GameEngine gameEngine;
+
     private GameUtil gameUtil = new GameUtil();
 
+    private final GridRenderer renderer = new GridRenderer();
+
+    private BoardPregenerator boardPregenerator;
+
     public void initializeGame(int gridWidth, int gridHeight, int mineNumbers) {
 
-        playGrid = new Grid(gridWidth, gridHeight, mineNumbers);
-        //Place Mine
-        playGrid.placeMines();
-        //Calculate mine around
-        playGrid.calculateMineAroundNumber();
+        if (boardPregenerator != null) {
+            // Mines already placed and counted in the background
+            playGrid = boardPregenerator.take(gridWidth, gridHeight, mineNumbers);
+        } else {
+            playGrid = new Grid(gridWidth, gridHeight, mineNumbers);
+            //Place Mine
+            playGrid.placeMines();
+            //Calculate mine around
+            playGrid.calculateMineAroundNumber();
+        }
+        gameEngine = new GameEngine(playGrid);
+        // Only the cells changed by a move are drawn again in the frame of the grid
+        renderer.clearFrame();
+        gameEngine.addListener(new GameListener() {
+            @Override
+            public void onMove(int index, MoveResult result, int revealedCells) {
+            }
+
+            @Override
+            public void onStatusChanged(GameStatus status) {
+            }
+
+            @Override
+            public void onCellsRevealed(RevealDelta delta) {
+                renderer.patchFrame(delta);
+            }
+
+            @Override
+            public void onFlagChanged(int index, boolean flagged) {
+                renderer.patchFrame(playGrid, index);
+            }
+        });
 
     }
 
     public void playGame() {
-        boolean victory = false;
         //play loop
-        while (true) {
+        while (gameEngine.status() == GameStatus.PLAYING) {
             //draw grid
-            playGrid.drawGrid();
+            drawGrid();
             // Ask Player choice
-            Pair<Integer, Integer> coordinates = askPlayerForCoordinate();
-            // Reveal cell
-            playGrid.revealCells(coordinates.getValue(), coordinates.getKey());
-            // Verify no mine
-            if (playGrid.isMineInCell(coordinates.getValue(), coordinates.getKey())) {
-                break;
-            }
-            // Decrease number of cell without mine
-            if (playGrid.getRemainingEmptyCell() == 0) {
-                victory = true;
-                break;
-            }
+            long coordinates = askPlayerForCoordinate();
+            // Reveal cell, the engine verifies the mine and the number of cell without mine remaining
+            gameEngine.reveal(Coordinates.x(coordinates), Coordinates.y(coordinates));
         }
-        playGrid.drawGrid();
+        drawGrid();
         // Print end message
-        if (victory) {
+        if (gameEngine.status() == GameStatus.WON) {
             gameUtil.printMessageToPlayer("You win !");
         } else {
             gameUtil.printMessageToPlayer("You lose !");
@@ -63,6 +86,21 @@ public class Game {
 
     }
 
+    /**
+     * @param boardPregenerator the generator giving the board of the game, null to generate it when the game starts
+     */
+    public void setBoardPregenerator(BoardPregenerator boardPregenerator) {
+        this.boardPregenerator = boardPregenerator;
+    }
+
+    private void drawGrid() {
+        try {
+            renderer.renderFrame(playGrid, System.out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     public int askPlayerForNumberOfMines(int gridWidth, int gridHeight) {
         while (true) {
             gameUtil.printMessageToPlayer(CHOOSE_MINE_NUMBER);
@@ -74,7 +112,10 @@ public class Game {
         }
     }
 
-    public Pair<Integer, Integer> askPlayerForGridSize() {
+    /**
+     * @return the grid width and height
+     */
+    public int[] askPlayerForGridSize() {
         while (true) {
             gameUtil.printMessageToPlayer(CHOOSE_GRID_SIZE);
             String playerChoice = gameUtil.getPlayerChoice();
@@ -85,7 +126,7 @@ public class Game {
                 Integer height = gameUtil.parsePlayerChoice(splitGridSize[1].trim());
 
                 if (checkGridDimensionNumber(width) && checkGridDimensionNumber(height)) {
-                    return Pair.of(width, height);
+                    return new int[]{width, height};
                 }
 
             } else {
@@ -94,7 +135,10 @@ public class Game {
         }
     }
 
-    public Pair<Integer, Integer> askPlayerForCoordinate() {
+    /**
+     * @return the coordinates of the cell chosen, see {@link Coordinates}
+     */
+    public long askPlayerForCoordinate() {
         while (true) {
             gameUtil.printMessageToPlayer(CHOOSE_COORDINATE);
             String playerChoice = gameUtil.getPlayerChoice();
@@ -105,7 +149,7 @@ public class Game {
                 Integer height = gameUtil.parsePlayerChoice(splitGridSize[1].trim());
 
                 if (checkWidthCoordinate(width) && checkHeightCoordinate(height)) {
-                    return Pair.of(width, height);
+                    return Coordinates.of(width, height);
                 }
 
             } else {
@@ -0,0 +1,277 @@
+package com.mlallaouret.minesweeper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Play a game on a grid without any input or output, the console game being only one client of it.
+ * An engine is meant to be driven by a single thread.
+ */
+public class GameEngine {
+
+    private final Grid grid;
+    private final List<GameListener> listeners = new ArrayList<GameListener>();
+    private final RevealDelta lastDelta;
+    private GridHistory history;
+    private ForkJoinPool revealPool;
+    private GameStatus status = GameStatus.PLAYING;
+    private int lastRevealedCells;
+
+    /**
+     * @param grid a grid with its mines placed and its mine around numbers calculated
+     */
+    public GameEngine(Grid grid) {
+        this.grid = grid;
+        this.lastDelta = new RevealDelta(grid);
+    }
+
+    /**
+     * Create a game on a new grid
+     *
+     * @param gridWidth     the width of the grid
+     * @param gridHeight    the height of the grid
+     * @param numberOfMines the number of mines on the grid
+     * @param seed          the seed of the mine positions
+     * @return the engine of the new game
+     */
+    public static GameEngine newGame(int gridWidth, int gridHeight, int numberOfMines, long seed) {
+        Grid grid = new Grid(gridWidth, gridHeight, numberOfMines, seed);
+        grid.placeMines();
+        grid.calculateMineAroundNumber();
+        return new GameEngine(grid);
+    }
+
+    /**
+     * Create a game on a grid taken from a pool, the same game as {@link #newGame(int, int, int, long)}
+     *
+     * @param gridPool      the pool giving the grid, it can be released once the game is over
+     * @param gridWidth     the width of the grid
+     * @param gridHeight    the height of the grid
+     * @param numberOfMines the number of mines on the grid
+     * @param seed          the seed of the mine positions
+     * @return the engine of the new game
+     */
+    public static GameEngine newGame(GridPool gridPool, int gridWidth, int gridHeight, int numberOfMines, long seed) {
+        Grid grid = gridPool.acquire(gridWidth, gridHeight, numberOfMines, seed);
+        grid.placeMines();
+        grid.calculateMineAroundNumber();
+        return new GameEngine(grid);
+    }
+
+    /**
+     * Reveal a cell, and the empty area around it
+     *
+     * @param x the width coordinate of the cell
+     * @param y the height coordinate of the cell
+     * @return the outcome of the move
+     * @throws IllegalArgumentException if the coordinates are outside the grid
+     */
+    public MoveResult reveal(int x, int y) {
+        if (status != GameStatus.PLAYING || grid.isRevealed(x, y) || grid.isFlagged(x, y)) {
+            setLastRevealedCells(0);
+            return MoveResult.IGNORED;
+        }
+        setLastRevealedCells(revealPool == null ? grid.revealCells(x, y) : grid.revealCells(x, y, revealPool));
+        if (history != null) {
+            history.recordReveal(lastRevealedCells);
+        }
+        MoveResult result = updateStatus(grid.isMineInCell(x, y));
+        notifyCellsRevealed();
+
+        int index = y * grid.getGridWidth() + x;
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onMove(index, result, lastRevealedCells);
+        }
+        notifyStatusChanged();
+        if (Metrics.ENABLED) {
+            Metrics.MOVES.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Put a flag on a hidden cell, or remove it
+     *
+     * @param x the width coordinate of the cell
+     * @param y the height coordinate of the cell
+     * @return FLAGGED or UNFLAGGED, IGNORED if the cell is revealed or the game is over
+     * @throws IllegalArgumentException if the coordinates are outside the grid
+     */
+    public MoveResult flag(int x, int y) {
+        setLastRevealedCells(0);
+        if (status != GameStatus.PLAYING || !grid.toggleFlag(x, y)) {
+            return MoveResult.IGNORED;
+        }
+        boolean flagged = grid.isFlagged(x, y);
+        int index = y * grid.getGridWidth() + x;
+        if (history != null) {
+            history.recordFlag(index);
+        }
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onFlagChanged(index, flagged);
+        }
+        if (Metrics.ENABLED) {
+            Metrics.MOVES.increment();
+        }
+        return flagged ? MoveResult.FLAGGED : MoveResult.UNFLAGGED;
+    }
+
+    /**
+     * Reveal the neighbours of a revealed number which are not flagged, when it has as many flags around as mines.
+     * The check only reads the flag counter of the cell, the neighbours are revealed by a single flood fill.
+     *
+     * @param x the width coordinate of the revealed number
+     * @param y the height coordinate of the revealed number
+     * @return the outcome of the chord, EXPLODED if a flag was wrong, IGNORED if the chord is not possible
+     * @throws IllegalArgumentException if the coordinates are outside the grid
+     */
+    public MoveResult chord(int x, int y) {
+        if (status != GameStatus.PLAYING) {
+            setLastRevealedCells(0);
+            return MoveResult.IGNORED;
+        }
+        setLastRevealedCells(grid.chord(x, y));
+        if (lastRevealedCells == 0) {
+            return MoveResult.IGNORED;
+        }
+        if (history != null) {
+            history.recordReveal(lastRevealedCells);
+        }
+        boolean exploded = false;
+        int[] revealQueue = grid.getRevealQueue();
+        byte[] cells = grid.getCells();
+        for (int i = 0; i < lastRevealedCells && !exploded; i++) {
+            exploded = (cells[revealQueue[i]] & Grid.MINE) != 0;
+        }
+        MoveResult result = updateStatus(exploded);
+        notifyCellsRevealed();
+
+        int index = y * grid.getGridWidth() + x;
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onChord(index, result, lastRevealedCells);
+        }
+        notifyStatusChanged();
+        if (Metrics.ENABLED) {
+            Metrics.MOVES.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Start recording the moves, so they can be undone. The moves played before are not recorded.
+     *
+     * @return the history of the moves
+     */
+    public GridHistory enableHistory() {
+        if (history == null) {
+            history = new GridHistory(grid);
+        }
+        return history;
+    }
+
+    /**
+     * Reveal the empty areas with a parallel flood fill, see {@link Grid#revealCells(int, int, ForkJoinPool)}
+     *
+     * @param revealPool the pool running the flood fill, null to reveal on the calling thread
+     */
+    public void setRevealPool(ForkJoinPool revealPool) {
+        this.revealPool = revealPool;
+    }
+
+    /**
+     * Undo the last move, a lost or won game goes on as its last move is undone.
+     * Listeners only get {@link GameListener#onUndo()}, a view of the grid has to be drawn again.
+     *
+     * @return false if the history is not enabled or there is no move to undo
+     */
+    public boolean undo() {
+        if (history == null || !history.undo()) {
+            return false;
+        }
+        setLastRevealedCells(0);
+        // Moves are ignored once the game is over, so the move undone is the one which ended it, if it is over
+        status = GameStatus.PLAYING;
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onUndo();
+        }
+        return true;
+    }
+
+    /**
+     * Play again the last move undone, listeners only get {@link GameListener#onRedo()}
+     *
+     * @return false if the history is not enabled or there is no move to redo
+     */
+    public boolean redo() {
+        if (history == null || !history.redo()) {
+            return false;
+        }
+        setLastRevealedCells(0);
+        updateStatus(history.lastMoveRevealedMine());
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onRedo();
+        }
+        return true;
+    }
+
+    private MoveResult updateStatus(boolean exploded) {
+        if (exploded) {
+            status = GameStatus.LOST;
+            return MoveResult.EXPLODED;
+        } else if (grid.getRemainingEmptyCell() == 0) {
+            status = GameStatus.WON;
+            return MoveResult.WON;
+        }
+        return MoveResult.REVEALED;
+    }
+
+    private void setLastRevealedCells(int revealedCells) {
+        lastRevealedCells = revealedCells;
+        lastDelta.setSize(revealedCells);
+    }
+
+    private void notifyCellsRevealed() {
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onCellsRevealed(lastDelta);
+        }
+    }
+
+    private void notifyStatusChanged() {
+        if (status != GameStatus.PLAYING) {
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).onStatusChanged(status);
+            }
+        }
+    }
+
+    public GameStatus status() {
+        return status;
+    }
+
+    /**
+     * @return the number of cells revealed by the last move
+     */
+    public int getLastRevealedCells() {
+        return lastRevealedCells;
+    }
+
+    /**
+     * @return the cells revealed by the last move, valid until the next move
+     */
+    public RevealDelta getLastDelta() {
+        return lastDelta;
+    }
+
+    public void addListener(GameListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(GameListener listener) {
+        listeners.remove(listener);
+    }
+
+    public Grid getGrid() {
+        return grid;
+    }
+}
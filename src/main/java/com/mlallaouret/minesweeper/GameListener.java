@@ -0,0 +1,63 @@
+package com.mlallaouret.minesweeper;
+
+/**
+ * Receive the changes of a game played through a {@link GameEngine}
+ */
+public interface GameListener {
+
+    /**
+     * Called after each reveal which changed the grid
+     *
+     * @param index         the index of the cell played (height * gridWidth + width)
+     * @param result        the outcome of the move
+     * @param revealedCells the number of cells revealed by the move
+     */
+    void onMove(int index, MoveResult result, int revealedCells);
+
+    /**
+     * Called after each reveal or chord which revealed cells, before {@link #onMove(int, MoveResult, int)} or
+     * {@link #onChord(int, MoveResult, int)}, to update a view with only the cells which changed
+     *
+     * @param delta the cells revealed, only valid during the call
+     */
+    default void onCellsRevealed(RevealDelta delta) {
+    }
+
+    /**
+     * Called after each flag put or removed
+     *
+     * @param index   the index of the cell (height * gridWidth + width)
+     * @param flagged true if the cell is now flagged
+     */
+    default void onFlagChanged(int index, boolean flagged) {
+    }
+
+    /**
+     * Called after each chord which revealed cells
+     *
+     * @param index         the index of the revealed number chorded (height * gridWidth + width)
+     * @param result        the outcome of the chord
+     * @param revealedCells the number of cells revealed by the chord
+     */
+    default void onChord(int index, MoveResult result, int revealedCells) {
+    }
+
+    /**
+     * Called after each move undone through {@link GameEngine#undo()}
+     */
+    default void onUndo() {
+    }
+
+    /**
+     * Called after each move played again through {@link GameEngine#redo()}
+     */
+    default void onRedo() {
+    }
+
+    /**
+     * Called when the game is won or lost
+     *
+     * @param status the new status of the game
+     */
+    void onStatusChanged(GameStatus status);
+}
@@ -0,0 +1,401 @@
+package com.mlallaouret.minesweeper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Host many independent games for clients connected on a local TCP port.
+ * <p>
+ * Each connection is served by its own thread, a virtual thread when the JVM provides them. The games are never
+ * touched by the connection threads: every session belongs to one shard, a single thread executing all the moves of
+ * its sessions, so the grids need no lock. The protocol is line based, one command per line:
+ * <pre>
+ * NEW width height mines [seed]  -&gt; OK sessionId
+ * REVEAL sessionId x y           -&gt; moveResult revealedCells gameStatus
+ * FLAG sessionId x y             -&gt; moveResult revealedCells gameStatus
+ * CHORD sessionId x y            -&gt; moveResult revealedCells gameStatus
+ * STATUS sessionId               -&gt; gameStatus remainingEmptyCell
+ * DELTA sessionId                -&gt; revealedCells index:value ...
+ * CLOSE sessionId                -&gt; OK
+ * </pre>
+ * A NEW without seed starts on a board generated in the background when one of its size is ready, see
+ * {@link BoardPregenerator}.
+ * DELTA gives the cells revealed by the last move of the session, with their mine around number or * for a mine,
+ * so a client updates its board with what changed only. The sessions a connection created and did not close are
+ * closed when it goes away.
+ * Any wrong command is answered with ERROR followed by a message.
+ */
+public class GameServer {
+    static final String OK = "OK";
+    static final String ERROR = "ERROR";
+
+    /**
+     * The largest board a client can create, 16 MB of cells
+     */
+    static final long MAX_CELLS = 1 << 24;
+
+    private static final int POOLED_SIZES = 16;
+    private static final int POOLED_GRIDS_PER_SIZE = 256;
+    private static final int PREGENERATED_BOARDS_PER_SIZE = 64;
+    private static final long ACCEPT_RETRY_MILLIS = 100;
+
+    private final int port;
+    private final ConcurrentHashMap<Long, GameEngine> sessions = new ConcurrentHashMap<Long, GameEngine>();
+    private final AtomicLong nextSessionId = new AtomicLong();
+    private final GridPool gridPool = new GridPool(POOLED_SIZES, POOLED_GRIDS_PER_SIZE);
+    private final BoardPregenerator boardPregenerator;
+    private final ExecutorService[] shards;
+    private final ExecutorService connectionExecutor;
+    private ServerSocket serverSocket;
+    private Thread acceptThread;
+    private volatile boolean running;
+
+    /**
+     * @param port the local port to listen on, 0 to pick a free one
+     */
+    public GameServer(int port) {
+        this(port, Runtime.getRuntime().availableProcessors());
+    }
+
+    public GameServer(int port, int shardNumber) {
+        this.port = port;
+        this.shards = new ExecutorService[shardNumber];
+        for (int i = 0; i < shardNumber; i++) {
+            shards[i] = Executors.newSingleThreadExecutor(daemonThreadFactory("minesweeper-shard-" + i));
+        }
+        this.connectionExecutor = newConnectionExecutor();
+        this.boardPregenerator = new BoardPregenerator(1, PREGENERATED_BOARDS_PER_SIZE, gridPool);
+    }
+
+    /**
+     * Start listening on the loopback address and accepting connections in a background thread
+     *
+     * @throws IOException if the port can't be opened
+     */
+    public void start() throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        running = true;
+        boardPregenerator.addStandardDifficulties();
+        acceptThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        }, "minesweeper-accept");
+        acceptThread.start();
+    }
+
+    /**
+     * Stop accepting connections and release the threads, the sessions are lost
+     */
+    public void stop() throws IOException {
+        running = false;
+        if (serverSocket != null) {
+            serverSocket.close();
+        }
+        connectionExecutor.shutdownNow();
+        boardPregenerator.close();
+        for (ExecutorService shard : shards) {
+            shard.shutdownNow();
+        }
+        sessions.clear();
+    }
+
+    /**
+     * Wait until the server is stopped
+     */
+    public void awaitTermination() throws InterruptedException {
+        acceptThread.join();
+    }
+
+    private void acceptConnections() {
+        while (running) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!running || serverSocket.isClosed()) {
+                    return;
+                }
+                // A failure such as too many open files lasts a while, retrying at once would spin
+                try {
+                    Thread.sleep(ACCEPT_RETRY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                continue;
+            }
+            connectionExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    serveConnection(socket);
+                }
+            });
+        }
+    }
+
+    private void serveConnection(Socket socket) {
+        Set<Long> connectionSessions = new HashSet<Long>();
+        try {
+            socket.setTcpNoDelay(true);
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                writer.write(handleCommand(line, connectionSessions));
+                writer.write('\n');
+                // Pipelined commands are answered in a single write
+                if (!reader.ready()) {
+                    writer.flush();
+                }
+            }
+        } catch (IOException e) {
+            // The client went away, nothing to answer
+        } finally {
+            closeSessions(connectionSessions);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+    }
+
+    /**
+     * Execute a command of the protocol, the sessions it creates are kept until closed
+     *
+     * @param command the command line sent by the client
+     * @return the answer line, without line separator
+     */
+    String handleCommand(String command) {
+        return handleCommand(command, null);
+    }
+
+    /**
+     * Execute a command of the protocol
+     *
+     * @param command            the command line sent by the client
+     * @param connectionSessions the sessions of the connection, updated by NEW and CLOSE, null if there is none
+     * @return the answer line, without line separator
+     */
+    String handleCommand(String command, Set<Long> connectionSessions) {
+        String[] arguments = command.trim().split("\\s+");
+        try {
+            if ("NEW".equals(arguments[0]) && (arguments.length == 4 || arguments.length == 5)) {
+                long sessionId = newSession(Integer.parseInt(arguments[1]), Integer.parseInt(arguments[2]),
+                        Integer.parseInt(arguments[3]), arguments.length == 5 ? Long.parseLong(arguments[4]) : 0,
+                        arguments.length == 5);
+                if (connectionSessions != null) {
+                    connectionSessions.add(sessionId);
+                }
+                return OK + " " + sessionId;
+            } else if (("REVEAL".equals(arguments[0]) || "FLAG".equals(arguments[0])
+                    || "CHORD".equals(arguments[0])) && arguments.length == 4) {
+                return play(arguments[0], Long.parseLong(arguments[1]), Integer.parseInt(arguments[2]),
+                        Integer.parseInt(arguments[3]));
+            } else if ("STATUS".equals(arguments[0]) && arguments.length == 2) {
+                return status(Long.parseLong(arguments[1]));
+            } else if ("DELTA".equals(arguments[0]) && arguments.length == 2) {
+                return delta(Long.parseLong(arguments[1]));
+            } else if ("CLOSE".equals(arguments[0]) && arguments.length == 2) {
+                long sessionId = Long.parseLong(arguments[1]);
+                if (connectionSessions != null) {
+                    connectionSessions.remove(sessionId);
+                }
+                return close(sessionId);
+            }
+            return ERROR + " Unknown command";
+        } catch (NumberFormatException e) {
+            return ERROR + " Not a number";
+        } catch (IllegalArgumentException e) {
+            return ERROR + " " + e.getMessage();
+        } catch (IllegalStateException e) {
+            // A failure in the shard, the connection goes on
+            return ERROR + " Internal error";
+        }
+    }
+
+    /**
+     * Create a session, on a pregenerated board when no seed is given
+     *
+     * @return the id of the session
+     */
+    private long newSession(final int gridWidth, final int gridHeight, final int numberOfMines, final long seed,
+                              final boolean seeded) {
+        if (gridWidth <= 0 || gridHeight <= 0 || numberOfMines <= 0
+                || numberOfMines >= (long) gridWidth * gridHeight || (long) gridWidth * gridHeight > MAX_CELLS) {
+            throw new IllegalArgumentException("Wrong grid dimensions or mine number");
+        }
+        final long sessionId = nextSessionId.incrementAndGet();
+        GameEngine gameEngine = executeInShard(sessionId, new Callable<GameEngine>() {
+            @Override
+            public GameEngine call() {
+                if (!seeded) {
+                    return new GameEngine(boardPregenerator.take(gridWidth, gridHeight, numberOfMines));
+                }
+                return GameEngine.newGame(gridPool, gridWidth, gridHeight, numberOfMines, seed);
+            }
+        });
+        sessions.put(sessionId, gameEngine);
+        return sessionId;
+    }
+
+    private String play(final String move, final long sessionId, final int x, final int y) {
+        return executeInShard(sessionId, new Callable<String>() {
+            @Override
+            public String call() {
+                GameEngine gameEngine = getSession(sessionId);
+                MoveResult result;
+                if ("FLAG".equals(move)) {
+                    result = gameEngine.flag(x, y);
+                } else if ("CHORD".equals(move)) {
+                    result = gameEngine.chord(x, y);
+                } else {
+                    result = gameEngine.reveal(x, y);
+                }
+                return result + " " + gameEngine.getLastRevealedCells() + " " + gameEngine.status();
+            }
+        });
+    }
+
+    private String status(final long sessionId) {
+        return executeInShard(sessionId, new Callable<String>() {
+            @Override
+            public String call() {
+                GameEngine gameEngine = getSession(sessionId);
+                return gameEngine.status() + " " + gameEngine.getGrid().getRemainingEmptyCell();
+            }
+        });
+    }
+
+    private String delta(final long sessionId) {
+        return executeInShard(sessionId, new Callable<String>() {
+            @Override
+            public String call() {
+                GameEngine gameEngine = getSession(sessionId);
+                RevealDelta delta = gameEngine.getLastDelta();
+                StringBuilder answer = new StringBuilder(8 + delta.size() * 8).append(delta.size());
+                for (int i = 0; i < delta.size(); i++) {
+                    answer.append(' ').append(delta.getIndex(i)).append(':');
+                    if (delta.isMine(i)) {
+                        answer.append('*');
+                    } else {
+                        answer.append(delta.getMineAroundNumber(i));
+                    }
+                }
+                return answer.toString();
+            }
+        });
+    }
+
+    /**
+     * Remove a session and give its grid back to the pool, both from the shard thread, so no move of the session can
+     * run once its grid is in the pool
+     */
+    private String close(final long sessionId) {
+        return executeInShard(sessionId, new Callable<String>() {
+            @Override
+            public String call() {
+                GameEngine gameEngine = sessions.remove(sessionId);
+                if (gameEngine == null) {
+                    return ERROR + " Unknown session";
+                }
+                gridPool.release(gameEngine.getGrid());
+                return OK;
+            }
+        });
+    }
+
+    /**
+     * Close the sessions a connection left open, so a client going away does not keep its grids
+     */
+    private void closeSessions(Set<Long> connectionSessions) {
+        for (Long sessionId : connectionSessions) {
+            try {
+                close(sessionId);
+            } catch (RuntimeException e) {
+                // The server is stopping, its sessions are dropped with it
+            }
+        }
+    }
+
+    /**
+     * Find the engine of a session, only called from the shard thread of the session
+     */
+    private GameEngine getSession(long sessionId) {
+        GameEngine gameEngine = sessions.get(sessionId);
+        if (gameEngine == null) {
+            throw new IllegalArgumentException("Unknown session");
+        }
+        return gameEngine;
+    }
+
+    /**
+     * Run a task in the thread owning the session and wait for its result
+     */
+    private <T> T executeInShard(long sessionId, Callable<T> task) {
+        try {
+            return shards[(int) (sessionId % shards.length)].submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IllegalArgumentException) {
+                throw (IllegalArgumentException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public int getPort() {
+        return serverSocket != null ? serverSocket.getLocalPort() : port;
+    }
+
+    public int getSessionNumber() {
+        return sessions.size();
+    }
+
+    /**
+     * Use one virtual thread per connection when the JVM supports it, else a cached pool of platform threads
+     */
+    private static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(daemonThreadFactory("minesweeper-connection"));
+        }
+    }
+
+    static ThreadFactory daemonThreadFactory(final String name) {
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+}
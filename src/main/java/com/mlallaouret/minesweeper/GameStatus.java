@@ -0,0 +1,10 @@
+package com.mlallaouret.minesweeper;
+
+/**
+ * State of a game
+ */
+public enum GameStatus {
+    PLAYING,
+    WON,
+    LOST
+}
@@ -1,33 +1,71 @@
 package com.mlallaouret.minesweeper;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
 
 /**
  * Created by mlallaouret on 5/22/15.
  * Represent the play grid
+ * <p>
+ * Cells are packed in one byte each, row after row, at index height * gridWidth + width:
+ * the 4 low bits hold the number of mines around, then one bit for the mine, the revealed state and the flag.
+ * The number of flags around each cell is kept in a separate array of 4 bits per cell, allocated with the first flag
+ * and updated when a flag is toggled.
  */
 public class Grid {
+    static final int MINE_AROUND_MASK = 0x0F;
+    static final int MINE = 0x10;
+    static final int REVEALED = 0x20;
+    static final int FLAGGED = 0x40;
+
+    static final int NEIGHBOUR_NUMBER = 8;
+
+    private static final int INITIAL_REVEAL_QUEUE_CAPACITY = 64;
+
     private int gridHeight;
     private int gridWidth;
     private int numberOfMines;
     private int remainingEmptyCell;
-    private Cell[][] cells;
+    private long seed;
+    private boolean seedReproducible;
+    private int generation;
+    private byte[] cells;
+    private byte[] flagAroundNumbers;
+    private int[] revealQueue;
+    private AtomicLongArray revealBits;
+    private int[] neighbourOffsets = new int[NEIGHBOUR_NUMBER];
+    private final int[] neighbourBuffer = new int[NEIGHBOUR_NUMBER];
+    private GridRenderer renderer;
 
     public Grid() {
     }
 
     public Grid(int gridWidth, int gridHeight, int numberOfMines) {
+        this(gridWidth, gridHeight, numberOfMines, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * @throws IllegalArgumentException if a dimension is not positive, the grid has more than
+     *                                  {@link Integer#MAX_VALUE} cells or the mines don't fit in it
+     */
+    public Grid(int gridWidth, int gridHeight, int numberOfMines, long seed) {
+        if (gridWidth <= 0 || gridHeight <= 0 || (long) gridWidth * gridHeight > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Wrong grid dimensions");
+        }
+        checkMineNumber(numberOfMines, gridWidth * gridHeight);
         this.gridHeight = gridHeight;
-        this.gridWidth = gridWidth;
         this.numberOfMines = numberOfMines;
+        this.seed = seed;
+        setGridWidth(gridWidth);
         remainingEmptyCell = this.gridHeight * this.gridWidth - numberOfMines;
-        cells = new Cell[this.gridHeight][this.gridWidth];
-        for (int i = 0; i < this.gridHeight; i++) {
-            for (int j = 0; j < this.gridWidth; j++) {
-                cells[i][j] = new Cell(j, i);
-            }
-        }
+        cells = new byte[this.gridHeight * this.gridWidth];
     }
 
     /**
@@ -45,168 +83,577 @@ public class Grid {
     /**
      * Verify is the cell is a mine
      *
-     * @param height the height coordinate of the cell to verify
      * @param width  the width coordinate of the cell to verify
+     * @param height the height coordinate of the cell to verify
      * @return true if there is a mine in the cell, else false
      */
-    public boolean isMineInCell(int height, int width) {
-        if (height < 0 || height > this.gridHeight || width < 0 || width > this.gridWidth) {
-            throw new IllegalArgumentException("Wrong grid Coordinates");
+    public boolean isMineInCell(int width, int height) {
+        checkCoordinates(height, width);
+        return (cells[height * gridWidth + width] & MINE) != 0;
+    }
+
+    /**
+     * Put or remove a mine in a cell, the mine around numbers have to be calculated again afterwards
+     *
+     * @param width  the width coordinate of the cell
+     * @param height the height coordinate of the cell
+     * @param mine   true to put a mine in the cell, false to remove it
+     */
+    public void setMineInCell(int width, int height, boolean mine) {
+        checkCoordinates(height, width);
+        int index = height * gridWidth + width;
+        seedReproducible = false;
+        generation++;
+        if (mine) {
+            cells[index] |= MINE;
+        } else {
+            cells[index] &= ~MINE;
         }
-        return cells[height][width].isContainsMine();
     }
 
     /**
-     * Reveal a cell to the player
+     * Verify if the cell has been revealed to the player
      *
-     * @param height the height coordinate of the cell to reveal
-     * @param width  the width coordinate of the cell to reveal
+     * @param width  the width coordinate of the cell to verify
+     * @param height the height coordinate of the cell to verify
+     * @return true if the cell is revealed, else false
      */
-    public void revealCells(int height, int width) {
-        Cell cell = cells[height][width];
-        if (!cell.isRevealed()) {
-            cell.setRevealed(true);
-            if (!cell.isContainsMine()) {
-                //If it is not a mine we decrease the number of empty cell remaining on the grid
-                decreaseRemainingEmptyCell();
-                //If 0 mine around, we discover the cells around
-                if (cell.getMineAroundNumber() == 0) {
-                    List<Cell> neighbourCells = getNeighbourCells(cell);
-                    for (Cell c : neighbourCells) {
-                        revealCells(c.getHeightCoordinate(), c.getWidthCoordinate());
-                    }
-                }
-            }
+    public boolean isRevealed(int width, int height) {
+        checkCoordinates(height, width);
+        return (cells[height * gridWidth + width] & REVEALED) != 0;
+    }
+
+    /**
+     * Retrieve the number of mines around a cell
+     *
+     * @param width  the width coordinate of the cell
+     * @param height the height coordinate of the cell
+     * @return the number of mines in the neighbour cells
+     */
+    public int getMineAroundNumber(int width, int height) {
+        checkCoordinates(height, width);
+        return cells[height * gridWidth + width] & MINE_AROUND_MASK;
+    }
+
+    /**
+     * Verify if the cell is flagged by the player
+     *
+     * @param width  the width coordinate of the cell to verify
+     * @param height the height coordinate of the cell to verify
+     * @return true if the cell is flagged, else false
+     */
+    public boolean isFlagged(int width, int height) {
+        checkCoordinates(height, width);
+        return (cells[height * gridWidth + width] & FLAGGED) != 0;
+    }
+
+    /**
+     * Retrieve the number of flags around a cell, kept up to date by {@link #toggleFlag(int, int)}
+     *
+     * @param width  the width coordinate of the cell
+     * @param height the height coordinate of the cell
+     * @return the number of flagged neighbour cells
+     */
+    public int getFlagAroundNumber(int width, int height) {
+        checkCoordinates(height, width);
+        return flagAroundNumber(height * gridWidth + width);
+    }
+
+    private int flagAroundNumber(int index) {
+        if (flagAroundNumbers == null) {
+            return 0;
         }
+        return (flagAroundNumbers[index >>> 1] >>> ((index & 1) << 2)) & 0x0F;
     }
 
     /**
-     * Place mine randomly ont the grid
+     * Put or remove a flag on a hidden cell, and update the flag counters of its neighbours
+     *
+     * @param width  the width coordinate of the cell
+     * @param height the height coordinate of the cell
+     * @return true if the flag was toggled, false if the cell is revealed
      */
-    public void placeMines() {
-        List<Cell> cellsList = new ArrayList<Cell>();
-        for (int i = 0; i < this.gridHeight; i++) {
-            for (int j = 0; j < this.gridWidth; j++) {
-                cellsList.add(cells[i][j]);
-            }
+    public boolean toggleFlag(int width, int height) {
+        checkCoordinates(height, width);
+        int index = height * gridWidth + width;
+        if ((cells[index] & REVEALED) != 0) {
+            return false;
+        }
+        if (flagAroundNumbers == null) {
+            flagAroundNumbers = new byte[(cells.length + 1) >>> 1];
         }
+        cells[index] ^= FLAGGED;
+        addFlagAround(index, (cells[index] & FLAGGED) != 0 ? 1 : -1);
+        return true;
+    }
 
-        for (int i = 0; i < numberOfMines; i++) {
-            int random = (int) (Math.random() * cellsList.size());
-            cellsList.get(random).setContainsMine(true);
-            cellsList.remove(random);
+    private void addFlagAround(int index, int delta) {
+        int neighbourNumber = getNeighbourIndexes(index, neighbourBuffer);
+        for (int i = 0; i < neighbourNumber; i++) {
+            int neighbour = neighbourBuffer[i];
+            // A counter never goes over 8 or under 0, so adding to its nibble never carries to the other one
+            flagAroundNumbers[neighbour >>> 1] += delta << ((neighbour & 1) << 2);
         }
+    }
 
+    /**
+     * Count again the flags around every cell, after the flags have been set directly in the cells
+     */
+    void calculateFlagAroundNumber() {
+        if (flagAroundNumbers != null) {
+            Arrays.fill(flagAroundNumbers, (byte) 0);
+        }
+        for (int index = 0; index < cells.length; index++) {
+            if ((cells[index] & FLAGGED) != 0) {
+                if (flagAroundNumbers == null) {
+                    flagAroundNumbers = new byte[(cells.length + 1) >>> 1];
+                }
+                addFlagAround(index, 1);
+            }
+        }
     }
 
     /**
-     * Calculate all the mine indicator numbers
+     * Build a detached copy of a cell of the grid, modifying it does not change the grid
+     *
+     * @param width  the width coordinate of the cell
+     * @param height the height coordinate of the cell
+     * @return a new cell holding the state of the grid cell
      */
-    public void calculateMineAroundNumber() {
+    public Cell getCell(int width, int height) {
+        checkCoordinates(height, width);
+        int value = cells[height * gridWidth + width];
+        Cell cell = new Cell(width, height);
+        cell.setContainsMine((value & MINE) != 0);
+        cell.setRevealed((value & REVEALED) != 0);
+        cell.setMineAroundNumber(value & MINE_AROUND_MASK);
+        return cell;
+    }
 
-        for (int i = 0; i < this.gridHeight; i++) {
-            for (int j = 0; j < this.gridWidth; j++) {
-                int count = 0;
+    /**
+     * Reveal a cell to the player.
+     * The empty area around the cell is discovered with an iterative flood fill: the cells to visit are stored in a
+     * reusable int queue, so no object is allocated per cell and the call stack does not depend on the area size.
+     * A flagged cell is not revealed, neither by the call nor by the flood fill.
+     *
+     * @param width  the width coordinate of the cell to reveal
+     * @param height the height coordinate of the cell to reveal
+     * @return the number of cells revealed by this call
+     */
+    public int revealCells(int width, int height) {
+        if ((cells[height * gridWidth + width] & (REVEALED | FLAGGED)) != 0) {
+            return 0;
+        }
+        return floodFill(enqueueReveal(0, height * gridWidth + width));
+    }
+
+    /**
+     * Reveal a cell to the player, discovering the empty area around it with a parallel flood fill.
+     * The area is visited level by level: the cells of a level are split between the threads of the pool, each
+     * claiming the neighbours it queues in a shared atomic bitset so a cell is visited only once, then the next
+     * levels found by the threads are appended to the reveal queue. The number of empty cells remaining is only
+     * updated once the fill is over. Preferred over {@link #revealCells(int, int)} for the huge open areas of large
+     * and sparse grids, small levels are processed by the calling thread.
+     *
+     * @param width  the width coordinate of the cell to reveal
+     * @param height the height coordinate of the cell to reveal
+     * @param pool   the pool running the flood fill tasks
+     * @return the number of cells revealed by this call
+     */
+    public int revealCells(int width, int height, ForkJoinPool pool) {
+        int index = height * gridWidth + width;
+        if ((cells[index] & (REVEALED | FLAGGED)) != 0) {
+            return 0;
+        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        int bitsLength = (cells.length + 63) >>> 6;
+        if (revealBits == null || revealBits.length() != bitsLength) {
+            revealBits = new AtomicLongArray(bitsLength);
+        }
+        FloodFillTask.claim(revealBits, index);
+        int head = 0;
+        int tail = enqueueReveal(0, index);
+        int emptyCells = 0;
+        while (head < tail) {
+            FloodFillTask task = new FloodFillTask(this, head, tail);
+            if (tail - head > FloodFillTask.CELLS_THRESHOLD) {
+                pool.invoke(task);
+            } else {
+                task.compute();
+            }
+            emptyCells += task.getEmptyCells();
+            ensureRevealQueueCapacity(tail + task.getNextSize());
+            head = tail;
+            tail = task.appendNext(revealQueue, tail);
+        }
+        // Only the words of the cells revealed hold bits, clear them for the next fill
+        for (int i = 0; i < tail; i++) {
+            revealBits.set(revealQueue[i] >>> 6, 0);
+        }
+        remainingEmptyCell -= emptyCells;
+        if (remainingEmptyCell < 0) {
+            throw new IllegalStateException("The remaining mines number can't be under 0");
+        }
+        if (Metrics.ENABLED) {
+            Metrics.REVEAL_NANOS.record(System.nanoTime() - start);
+            Metrics.REVEALED_CELLS.record(tail);
+        }
+        return tail;
+    }
 
-                List<Cell> neighbourCells = this.getNeighbourCells(cells[i][j]);
-                for (Cell c : neighbourCells) {
-                    if (c.isContainsMine()) {
-                        count++;
+    /**
+     * Reveal the hidden neighbours of a revealed number which are not flagged, when the number of flags around it
+     * equals its number of mines. The neighbours are all queued first, then opened by a single flood fill.
+     * A wrong flag makes the chord reveal a mine, which is left to the caller to detect in the reveal queue.
+     *
+     * @param width  the width coordinate of the revealed number
+     * @param height the height coordinate of the revealed number
+     * @return the number of cells revealed by this call, 0 if the chord is not possible
+     */
+    public int chord(int width, int height) {
+        checkCoordinates(height, width);
+        int index = height * gridWidth + width;
+        int value = cells[index];
+        if ((value & REVEALED) == 0 || (value & MINE) != 0 || (value & MINE_AROUND_MASK) == 0
+                || flagAroundNumber(index) != (value & MINE_AROUND_MASK)) {
+            return 0;
+        }
+        int tail = 0;
+        int neighbourNumber = getNeighbourIndexes(index, neighbourBuffer);
+        for (int i = 0; i < neighbourNumber; i++) {
+            int neighbour = neighbourBuffer[i];
+            if ((cells[neighbour] & (REVEALED | FLAGGED)) == 0) {
+                tail = enqueueReveal(tail, neighbour);
+            }
+        }
+        return floodFill(tail);
+    }
+
+    /**
+     * Reveal the cells of the reveal queue, and the empty areas around them, flagged cells are never revealed
+     *
+     * @param tail the number of cells already in the queue
+     * @return the number of cells revealed
+     */
+    private int floodFill(int tail) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        int head = 0;
+        while (head < tail) {
+            int index = revealQueue[head++];
+            int value = cells[index];
+            if ((value & MINE) != 0) {
+                continue;
+            }
+            //If it is not a mine we decrease the number of empty cell remaining on the grid
+            decreaseRemainingEmptyCell();
+            //If 0 mine around, we discover the cells around
+            if ((value & MINE_AROUND_MASK) == 0) {
+                int neighbourNumber = getNeighbourIndexes(index, neighbourBuffer);
+                for (int i = 0; i < neighbourNumber; i++) {
+                    int neighbour = neighbourBuffer[i];
+                    if ((cells[neighbour] & (REVEALED | FLAGGED)) == 0) {
+                        tail = enqueueReveal(tail, neighbour);
                     }
                 }
-                cells[i][j].setMineAroundNumber(count);
             }
         }
-
+        if (Metrics.ENABLED) {
+            Metrics.REVEAL_NANOS.record(System.nanoTime() - start);
+            Metrics.REVEALED_CELLS.record(tail);
+        }
+        return tail;
     }
 
     /**
-     * Retrieve the neighbour cells of a cell in the grid
+     * Mark a cell as revealed and add it at the end of the reveal queue, growing the queue if needed.
+     * A cell is marked when queued so it can never be queued twice, which bounds the queue to the grid size.
      *
-     * @param cell the cell which we want the neighbours
-     * @return A list containing the neighbour cells
+     * @param tail  the current size of the queue
+     * @param index the index of the cell to add (height * gridWidth + width)
+     * @return the new size of the queue
      */
-    public List<Cell> getNeighbourCells(Cell cell) {
-        List<Cell> neighbourCells = new ArrayList<Cell>();
+    private int enqueueReveal(int tail, int index) {
+        if (revealQueue == null || tail == revealQueue.length) {
+            ensureRevealQueueCapacity(tail + 1);
+        }
+        cells[index] |= REVEALED;
+        revealQueue[tail] = index;
+        return tail + 1;
+    }
 
-        int cellHeight = cell.getHeightCoordinate();
-        int cellWidth = cell.getWidthCoordinate();
+    /**
+     * Grow the reveal queue by doubling it until it holds a number of cells, it never gets larger than the grid
+     */
+    private void ensureRevealQueueCapacity(int size) {
+        int length = revealQueue == null ? 0 : revealQueue.length;
+        if (size <= length) {
+            return;
+        }
+        long capacity = Math.max(length, INITIAL_REVEAL_QUEUE_CAPACITY);
+        while (capacity < size) {
+            capacity *= 2;
+        }
+        revealQueue = Arrays.copyOf(revealQueue == null ? new int[0] : revealQueue,
+                (int) Math.min(capacity, cells.length));
+    }
+
+    /**
+     * Place mine randomly ont the empty grid, the positions only depend on the seed of the grid.
+     * Cells are drawn at random until enough of them have been picked, which costs O(numberOfMines) while the mines
+     * cover at most half of the grid. For denser grids, the grid is filled with mines and the empty cells are drawn
+     * instead.
+     */
+    public void placeMines() {
+        placeMines(0, -1, 0, -1);
+        seedReproducible = true;
+    }
+
+    /**
+     * Place mine randomly ont the empty grid, keeping a cell and its neighbours free so the first click of the player
+     * opens an area. The positions only depend on the seed of the grid and the safe cell.
+     *
+     * @param safeWidth  the width coordinate of the cell to keep free
+     * @param safeHeight the height coordinate of the cell to keep free
+     * @throws IllegalArgumentException if there are too many mines to keep the cell and its neighbours free
+     */
+    public void placeMines(int safeWidth, int safeHeight) {
+        checkCoordinates(safeHeight, safeWidth);
+        placeMines(Math.max(safeHeight - 1, 0), Math.min(safeHeight + 1, gridHeight - 1),
+                Math.max(safeWidth - 1, 0), Math.min(safeWidth + 1, gridWidth - 1));
+    }
 
-        if (cellHeight > 0 && cellWidth > 0) {
-            neighbourCells.add(cells[cellHeight - 1][cellWidth - 1]);
+    private void placeMines(int minSafeHeight, int maxSafeHeight, int minSafeWidth, int maxSafeWidth) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        seedReproducible = false;
+        generation++;
+        SplittableRandom random = new SplittableRandom(seed);
+        int cellNumber = cells.length;
+        int freeCellNumber = cellNumber - Math.max(maxSafeHeight - minSafeHeight + 1, 0)
+                * Math.max(maxSafeWidth - minSafeWidth + 1, 0);
+        if (numberOfMines > freeCellNumber) {
+            throw new IllegalArgumentException("Too many mines to keep the first cell free");
         }
-        if (cellWidth > 0) {
-            neighbourCells.add(cells[cellHeight][cellWidth - 1]);
+        if (numberOfMines <= freeCellNumber / 2) {
+            int placedMines = 0;
+            while (placedMines < numberOfMines) {
+                int index = random.nextInt(cellNumber);
+                if ((cells[index] & MINE) == 0
+                        && !isInArea(index, minSafeHeight, maxSafeHeight, minSafeWidth, maxSafeWidth)) {
+                    cells[index] |= MINE;
+                    placedMines++;
+                }
+            }
+        } else {
+            for (int i = 0; i < cellNumber; i++) {
+                if (!isInArea(i, minSafeHeight, maxSafeHeight, minSafeWidth, maxSafeWidth)) {
+                    cells[i] |= MINE;
+                }
+            }
+            int emptyCells = 0;
+            while (emptyCells < freeCellNumber - numberOfMines) {
+                int index = random.nextInt(cellNumber);
+                if ((cells[index] & MINE) != 0) {
+                    cells[index] &= ~MINE;
+                    emptyCells++;
+                }
+            }
         }
-        if (cellHeight < gridWidth - 1 && cellWidth > 0) {
-            neighbourCells.add(cells[cellHeight + 1][cellWidth - 1]);
+        if (Metrics.ENABLED) {
+            Metrics.GENERATION_NANOS.record(System.nanoTime() - start);
         }
+    }
 
-        if (cellHeight > 0) {
-            neighbourCells.add(cells[cellHeight - 1][cellWidth]);
-        }
-        if (cellHeight < gridWidth - 1) {
-            neighbourCells.add(cells[cellHeight + 1][cellWidth]);
+    private boolean isInArea(int index, int minHeight, int maxHeight, int minWidth, int maxWidth) {
+        if (minHeight > maxHeight) {
+            return false;
         }
+        int height = index / gridWidth;
+        int width = index - height * gridWidth;
+        return height >= minHeight && height <= maxHeight && width >= minWidth && width <= maxWidth;
+    }
 
-        if (cellHeight > 0 && cellWidth < gridHeight - 1) {
-            neighbourCells.add(cells[cellHeight - 1][cellWidth + 1]);
+    /**
+     * Clear the grid to play a new game with the same dimensions and number of mines, reusing its storage
+     *
+     * @param seed the seed of the mine positions of the new game
+     */
+    public void reset(long seed) {
+        this.seed = seed;
+        seedReproducible = false;
+        generation++;
+        Arrays.fill(cells, (byte) 0);
+        if (flagAroundNumbers != null) {
+            Arrays.fill(flagAroundNumbers, (byte) 0);
         }
-        if (cellWidth < gridHeight - 1) {
-            neighbourCells.add(cells[cellHeight][cellWidth + 1]);
+        remainingEmptyCell = cells.length - numberOfMines;
+    }
+
+    /**
+     * Clear the grid to play a new game with the same dimensions, reusing its storage.
+     * The mines of the new game still have to be placed and counted.
+     *
+     * @param seed          the seed of the mine positions of the new game
+     * @param numberOfMines the number of mines of the new game
+     * @throws IllegalArgumentException if the number of mines does not fit in the grid
+     */
+    public void reset(long seed, int numberOfMines) {
+        checkMineNumber(numberOfMines, cells.length);
+        this.numberOfMines = numberOfMines;
+        reset(seed);
+    }
+
+    private static void checkMineNumber(int numberOfMines, int cellNumber) {
+        if (numberOfMines < 0 || numberOfMines > cellNumber) {
+            throw new IllegalArgumentException("Wrong mine number");
         }
-        if (cellHeight < gridHeight - 1 && cellWidth < gridHeight - 1) {
-            neighbourCells.add(cells[cellHeight + 1][cellWidth + 1]);
+    }
+
+    /**
+     * Calculate all the mine indicator numbers.
+     * The counters are reset, then each mine increments the counters of its neighbours, so only the cells around the
+     * mines are written.
+     */
+    public void calculateMineAroundNumber() {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        generation++;
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] &= ~MINE_AROUND_MASK;
         }
 
-        return neighbourCells;
+        for (int index = 0; index < cells.length; index++) {
+            if ((cells[index] & MINE) == 0) {
+                continue;
+            }
+            int neighbourNumber = getNeighbourIndexes(index, neighbourBuffer);
+            for (int i = 0; i < neighbourNumber; i++) {
+                cells[neighbourBuffer[i]]++;
+            }
+        }
+        if (Metrics.ENABLED) {
+            Metrics.COUNTING_NANOS.record(System.nanoTime() - start);
+        }
     }
 
     /**
-     * Draw the grid
+     * Calculate all the mine indicator numbers, splitting the rows of the grid between the threads of a pool.
+     * Each cell counts the mines around it and only writes its own counter, so the rows can be processed
+     * concurrently. Preferred over {@link #calculateMineAroundNumber()} for large and dense grids.
+     *
+     * @param pool the pool running the row tasks
      */
-    public void drawGrid() {
-        drawHeader();
-        for (int i = 0; i < gridHeight; i++) {
-            drawLine(i);
+    public void calculateMineAroundNumber(ForkJoinPool pool) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        generation++;
+        pool.invoke(new MineAroundNumberTask(this, 0, gridHeight));
+        if (Metrics.ENABLED) {
+            Metrics.COUNTING_NANOS.record(System.nanoTime() - start);
         }
-        drawFooter();
     }
 
-    private void drawFooter() {
-        for (int i = 0; i < this.gridWidth; i++) {
-            System.out.print("--");
+    /**
+     * Retrieve the neighbour cells of a cell in the grid without allocating anything
+     *
+     * @param index      the index of the cell which we want the neighbours (height * gridWidth + width)
+     * @param neighbours the array receiving the indexes of the neighbour cells, at least 8 long
+     * @return the number of neighbour cells written in the array
+     */
+    public int getNeighbourIndexes(int index, int[] neighbours) {
+        int cellHeight = index / gridWidth;
+        int cellWidth = index - cellHeight * gridWidth;
+        if (cellHeight > 0 && cellHeight < gridHeight - 1 && cellWidth > 0 && cellWidth < gridWidth - 1) {
+            for (int i = 0; i < NEIGHBOUR_NUMBER; i++) {
+                neighbours[i] = index + neighbourOffsets[i];
+            }
+            return NEIGHBOUR_NUMBER;
+        }
+
+        int count = 0;
+        int minHeight = Math.max(cellHeight - 1, 0);
+        int maxHeight = Math.min(cellHeight + 1, gridHeight - 1);
+        int minWidth = Math.max(cellWidth - 1, 0);
+        int maxWidth = Math.min(cellWidth + 1, gridWidth - 1);
+        for (int i = minHeight; i <= maxHeight; i++) {
+            for (int j = i * gridWidth + minWidth, end = i * gridWidth + maxWidth; j <= end; j++) {
+                if (j != index) {
+                    neighbours[count++] = j;
+                }
+            }
         }
-        System.out.println("--");
+        return count;
     }
 
-    private void drawLine(int lineNumber) {
-        System.out.print(lineNumber);
-        String icon;
-        for (int j = 0; j < this.gridWidth; j++) {
-            if (!cells[lineNumber][j].isRevealed()) {
-                icon = "X";
-            } else if (cells[lineNumber][j].isContainsMine()) {
-                icon = "*";
-            } else {
-                icon = String.valueOf(cells[lineNumber][j].getMineAroundNumber());
+    /**
+     * Call an action with the index of each neighbour cell of a cell in the grid
+     *
+     * @param index  the index of the cell which we want the neighbours (height * gridWidth + width)
+     * @param action the action called with the index of every neighbour cell
+     */
+    public void forEachNeighbour(int index, IntConsumer action) {
+        int cellHeight = index / gridWidth;
+        int cellWidth = index - cellHeight * gridWidth;
+        int minHeight = Math.max(cellHeight - 1, 0);
+        int maxHeight = Math.min(cellHeight + 1, gridHeight - 1);
+        int minWidth = Math.max(cellWidth - 1, 0);
+        int maxWidth = Math.min(cellWidth + 1, gridWidth - 1);
+        for (int i = minHeight; i <= maxHeight; i++) {
+            for (int j = i * gridWidth + minWidth, end = i * gridWidth + maxWidth; j <= end; j++) {
+                if (j != index) {
+                    action.accept(j);
+                }
             }
-            System.out.print("|" + icon);
         }
-        System.out.println("|");
     }
 
-    private void drawHeader() {
-        System.out.print(" ");
-        for (int i = 0; i < this.gridWidth; i++) {
-            System.out.print("|" + i);
+    /**
+     * Compute the index of a cell in the grid
+     *
+     * @param width  the width coordinate of the cell
+     * @param height the height coordinate of the cell
+     * @return the index of the cell, height * gridWidth + width
+     */
+    public int indexOf(int width, int height) {
+        checkCoordinates(height, width);
+        return height * gridWidth + width;
+    }
+
+    public int heightOf(int index) {
+        return index / gridWidth;
+    }
+
+    public int widthOf(int index) {
+        return index % gridWidth;
+    }
+
+    /**
+     * Draw the grid on the standard output
+     */
+    public void drawGrid() {
+        drawGrid(0, 0, gridWidth, gridHeight);
+    }
+
+    /**
+     * Draw a part of the grid on the standard output
+     *
+     * @param firstWidth   the width coordinate of the first column to draw
+     * @param firstHeight  the height coordinate of the first line to draw
+     * @param widthNumber  the number of columns to draw
+     * @param heightNumber the number of lines to draw
+     */
+    public void drawGrid(int firstWidth, int firstHeight, int widthNumber, int heightNumber) {
+        if (renderer == null) {
+            renderer = new GridRenderer();
         }
-        System.out.println("|");
-        for (int i = 0; i < this.gridWidth; i++) {
-            System.out.print("--");
+        try {
+            renderer.render(this, System.out, firstWidth, firstHeight, widthNumber, heightNumber);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        System.out.println("--");
+    }
 
+    private void checkCoordinates(int height, int width) {
+        if (height < 0 || height >= this.gridHeight || width < 0 || width >= this.gridWidth) {
+            throw new IllegalArgumentException("Wrong grid Coordinates");
+        }
     }
 
     public int getRemainingEmptyCell() {
@@ -231,6 +678,8 @@ public class Grid {
 
     public void setGridWidth(int gridWidth) {
         this.gridWidth = gridWidth;
+        neighbourOffsets = new int[]{-gridWidth - 1, -gridWidth, -gridWidth + 1, -1, 1,
+                gridWidth - 1, gridWidth, gridWidth + 1};
     }
 
     public int getNumberOfMines() {
@@ -241,11 +690,205 @@ public class Grid {
         this.numberOfMines = numberOfMines;
     }
 
-    public Cell[][] getCells() {
+    /**
+     * Give the queue used by the last flood fill, the cells revealed by the last call to
+     * {@link #revealCells(int, int)} or {@link #chord(int, int)} are at its start, in the order they were revealed
+     *
+     * @return the reveal queue, null if no cell has been revealed yet
+     */
+    int[] getRevealQueue() {
+        return revealQueue;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+        seedReproducible = false;
+    }
+
+    /**
+     * Tell if the mines are the ones {@link #placeMines()} puts from the seed, so the seed alone is enough to build
+     * the grid again. It is false once the mines are placed another way or changed through the grid methods, a grid
+     * whose cells are written directly must not rely on it.
+     *
+     * @return true if the mines can be placed again from the seed
+     */
+    public boolean isSeedReproducible() {
+        return seedReproducible;
+    }
+
+    public byte[] getCells() {
         return cells;
     }
 
-    public void setCells(Cell[][] cells) {
+    /**
+     * Tell a copy of the cells, a rendered frame for instance, that it is stale. The generation changes when the
+     * grid is reset, its mines are placed or counted, or its cells are replaced or rewound by a {@link GridHistory},
+     * not when a move reveals or flags cells.
+     *
+     * @return the generation of the cells
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Start a new generation after the cells were changed directly, see {@link #getGeneration()}
+     */
+    void nextGeneration() {
+        generation++;
+    }
+
+    public void setCells(byte[] cells) {
         this.cells = cells;
+        seedReproducible = false;
+        generation++;
+        flagAroundNumbers = null;
+        revealBits = null;
+        calculateFlagAroundNumber();
+    }
+
+    /**
+     * Count the mines around the cells of a band of rows, split in halves until the band is small enough
+     */
+    private static final class MineAroundNumberTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int CELLS_THRESHOLD = 1 << 16;
+
+        private final Grid grid;
+        private final int fromHeight;
+        private final int toHeight;
+
+        MineAroundNumberTask(Grid grid, int fromHeight, int toHeight) {
+            this.grid = grid;
+            this.fromHeight = fromHeight;
+            this.toHeight = toHeight;
+        }
+
+        @Override
+        protected void compute() {
+            if (toHeight - fromHeight > 1 && (long) (toHeight - fromHeight) * grid.gridWidth > CELLS_THRESHOLD) {
+                int middle = (fromHeight + toHeight) >>> 1;
+                invokeAll(new MineAroundNumberTask(grid, fromHeight, middle),
+                        new MineAroundNumberTask(grid, middle, toHeight));
+                return;
+            }
+            byte[] cells = grid.cells;
+            int[] neighbours = new int[NEIGHBOUR_NUMBER];
+            for (int index = fromHeight * grid.gridWidth, end = toHeight * grid.gridWidth; index < end; index++) {
+                int neighbourNumber = grid.getNeighbourIndexes(index, neighbours);
+                int count = 0;
+                for (int i = 0; i < neighbourNumber; i++) {
+                    count += (cells[neighbours[i]] & MINE) >>> 4;
+                }
+                cells[index] = (byte) ((cells[index] & ~MINE_AROUND_MASK) | count);
+            }
+        }
+    }
+
+    /**
+     * Visit the cells of a level of a parallel flood fill, split in halves until the part is small enough.
+     * Each part keeps the cells of the next level it claimed, they are appended to the reveal queue in the order
+     * of the parts once the level is over.
+     */
+    private static final class FloodFillTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int CELLS_THRESHOLD = 1 << 12;
+
+        private final Grid grid;
+        private final int from;
+        private final int to;
+        private FloodFillTask left;
+        private FloodFillTask right;
+        private int[] next;
+        private int nextSize;
+        private int emptyCells;
+
+        FloodFillTask(Grid grid, int from, int to) {
+            this.grid = grid;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Set the bit of a cell in a bitset
+         *
+         * @return false if the bit was already set, by another thread
+         */
+        static boolean claim(AtomicLongArray bits, int index) {
+            int word = index >>> 6;
+            long mask = 1L << index;
+            long value;
+            do {
+                value = bits.get(word);
+                if ((value & mask) != 0) {
+                    return false;
+                }
+            } while (!bits.compareAndSet(word, value, value | mask));
+            return true;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CELLS_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                left = new FloodFillTask(grid, from, middle);
+                right = new FloodFillTask(grid, middle, to);
+                invokeAll(left, right);
+                return;
+            }
+            byte[] cells = grid.cells;
+            int[] queue = grid.revealQueue;
+            AtomicLongArray bits = grid.revealBits;
+            int[] neighbours = new int[NEIGHBOUR_NUMBER];
+            next = new int[Math.max(to - from, 16)];
+            for (int i = from; i < to; i++) {
+                int index = queue[i];
+                int value = cells[index];
+                if ((value & MINE) != 0) {
+                    continue;
+                }
+                emptyCells++;
+                if ((value & MINE_AROUND_MASK) != 0) {
+                    continue;
+                }
+                int neighbourNumber = grid.getNeighbourIndexes(index, neighbours);
+                for (int j = 0; j < neighbourNumber; j++) {
+                    int neighbour = neighbours[j];
+                    // Only the thread which claimed a cell writes it, the others may read it at the same time
+                    if ((cells[neighbour] & (REVEALED | FLAGGED)) == 0 && claim(bits, neighbour)) {
+                        cells[neighbour] |= REVEALED;
+                        if (nextSize == next.length) {
+                            next = Arrays.copyOf(next, nextSize * 2);
+                        }
+                        next[nextSize++] = neighbour;
+                    }
+                }
+            }
+        }
+
+        int getEmptyCells() {
+            return left == null ? emptyCells : left.getEmptyCells() + right.getEmptyCells();
+        }
+
+        int getNextSize() {
+            return left == null ? nextSize : left.getNextSize() + right.getNextSize();
+        }
+
+        /**
+         * Copy the cells of the next level found by this part at the end of a queue
+         *
+         * @return the new size of the queue
+         */
+        int appendNext(int[] queue, int tail) {
+            if (left != null) {
+                return right.appendNext(queue, left.appendNext(queue, tail));
+            }
+            System.arraycopy(next, 0, queue, tail, nextSize);
+            return tail + nextSize;
+        }
     }
 }
@@ -0,0 +1,240 @@
+package com.mlallaouret.minesweeper;
+
+import java.util.Arrays;
+
+/**
+ * Undo and redo the moves played on a grid, to try a move and come back.
+ * <p>
+ * The history is a change log: each move keeps the indexes of the cells it revealed, or of the cell it flagged. A
+ * checkpoint is only the number of moves played, so taking one costs nothing, and going back to it costs the cells
+ * changed since. The grid is never copied. Moves undone can be redone until a new move is played, which drops them:
+ * rolling back to a checkpoint and playing another move is how another branch is explored.
+ * <p>
+ * Every move on the grid must go through the history, or be recorded right after it is played.
+ */
+public class GridHistory {
+    private static final byte REVEAL = 0;
+    private static final byte FLAG = 1;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Grid grid;
+    private int[] cellLog = new int[INITIAL_CAPACITY];
+    private int cellLogEnd;
+    private int[] moveEnds = new int[INITIAL_CAPACITY];
+    private byte[] moveTypes = new byte[INITIAL_CAPACITY];
+    private int moveNumber;
+    private int moveLimit;
+
+    public GridHistory(Grid grid) {
+        this.grid = grid;
+    }
+
+    /**
+     * Reveal a cell and record the move
+     *
+     * @param width  the width coordinate of the cell to reveal
+     * @param height the height coordinate of the cell to reveal
+     * @return the number of cells revealed
+     */
+    public int revealCells(int width, int height) {
+        int revealed = grid.revealCells(width, height);
+        recordReveal(revealed);
+        return revealed;
+    }
+
+    /**
+     * Chord a revealed number and record the move
+     *
+     * @param width  the width coordinate of the revealed number
+     * @param height the height coordinate of the revealed number
+     * @return the number of cells revealed
+     */
+    public int chord(int width, int height) {
+        int revealed = grid.chord(width, height);
+        recordReveal(revealed);
+        return revealed;
+    }
+
+    /**
+     * Toggle the flag of a cell and record the move
+     *
+     * @param width  the width coordinate of the cell
+     * @param height the height coordinate of the cell
+     * @return true if the flag was toggled
+     */
+    public boolean toggleFlag(int width, int height) {
+        boolean toggled = grid.toggleFlag(width, height);
+        if (toggled) {
+            recordFlag(grid.indexOf(width, height));
+        }
+        return toggled;
+    }
+
+    /**
+     * Record a reveal or chord just played on the grid, the cells are read from its reveal queue
+     *
+     * @param revealed the number of cells revealed by the move, nothing is recorded if 0
+     */
+    public void recordReveal(int revealed) {
+        if (revealed == 0) {
+            return;
+        }
+        ensureCellCapacity(cellLogEnd + revealed);
+        System.arraycopy(grid.getRevealQueue(), 0, cellLog, cellLogEnd, revealed);
+        recordMove(REVEAL, cellLogEnd + revealed);
+    }
+
+    /**
+     * Record a flag just toggled on the grid
+     *
+     * @param index the index of the cell (height * gridWidth + width)
+     */
+    public void recordFlag(int index) {
+        ensureCellCapacity(cellLogEnd + 1);
+        cellLog[cellLogEnd] = index;
+        recordMove(FLAG, cellLogEnd + 1);
+    }
+
+    private void recordMove(byte type, int end) {
+        if (moveNumber == moveEnds.length) {
+            moveEnds = Arrays.copyOf(moveEnds, moveEnds.length * 2);
+            moveTypes = Arrays.copyOf(moveTypes, moveTypes.length * 2);
+        }
+        moveEnds[moveNumber] = end;
+        moveTypes[moveNumber] = type;
+        moveNumber++;
+        // A new move starts a new branch, the moves undone can't be redone anymore
+        moveLimit = moveNumber;
+        cellLogEnd = end;
+    }
+
+    /**
+     * Undo the last move played
+     *
+     * @return false if there is no move to undo
+     */
+    public boolean undo() {
+        if (moveNumber == 0) {
+            return false;
+        }
+        moveNumber--;
+        int start = moveStart(moveNumber);
+        if (moveTypes[moveNumber] == FLAG) {
+            toggleFlag(cellLog[start]);
+        } else {
+            byte[] cells = grid.getCells();
+            int remainingEmptyCell = grid.getRemainingEmptyCell();
+            for (int i = start; i < cellLogEnd; i++) {
+                int index = cellLog[i];
+                cells[index] &= ~Grid.REVEALED;
+                if ((cells[index] & Grid.MINE) == 0) {
+                    remainingEmptyCell++;
+                }
+            }
+            grid.setRemainingEmptyCell(remainingEmptyCell);
+        }
+        cellLogEnd = start;
+        grid.nextGeneration();
+        return true;
+    }
+
+    /**
+     * Play again the last move undone
+     *
+     * @return false if there is no move to redo
+     */
+    public boolean redo() {
+        if (moveNumber == moveLimit) {
+            return false;
+        }
+        int end = moveEnds[moveNumber];
+        if (moveTypes[moveNumber] == FLAG) {
+            toggleFlag(cellLog[cellLogEnd]);
+        } else {
+            byte[] cells = grid.getCells();
+            int remainingEmptyCell = grid.getRemainingEmptyCell();
+            for (int i = cellLogEnd; i < end; i++) {
+                int index = cellLog[i];
+                cells[index] |= Grid.REVEALED;
+                if ((cells[index] & Grid.MINE) == 0) {
+                    remainingEmptyCell--;
+                }
+            }
+            grid.setRemainingEmptyCell(remainingEmptyCell);
+        }
+        cellLogEnd = end;
+        moveNumber++;
+        grid.nextGeneration();
+        return true;
+    }
+
+    /**
+     * @return a checkpoint of the current state, to come back to with {@link #rollback(int)}
+     */
+    public int checkpoint() {
+        return moveNumber;
+    }
+
+    /**
+     * Undo the moves played since a checkpoint, they can be redone until a new move is played
+     *
+     * @param checkpoint a checkpoint taken on this history, in the current branch
+     * @throws IllegalArgumentException if the checkpoint is ahead of the current state
+     */
+    public void rollback(int checkpoint) {
+        if (checkpoint < 0 || checkpoint > moveNumber) {
+            throw new IllegalArgumentException("Checkpoint " + checkpoint + " is not behind the current state");
+        }
+        while (moveNumber > checkpoint) {
+            undo();
+        }
+    }
+
+    /**
+     * @return true if the last move played revealed a mine
+     */
+    public boolean lastMoveRevealedMine() {
+        if (moveNumber == 0 || moveTypes[moveNumber - 1] == FLAG) {
+            return false;
+        }
+        byte[] cells = grid.getCells();
+        for (int i = moveStart(moveNumber - 1); i < cellLogEnd; i++) {
+            if ((cells[cellLog[i]] & Grid.MINE) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of moves played and not undone
+     */
+    public int getMoveNumber() {
+        return moveNumber;
+    }
+
+    /**
+     * @return the number of moves undone which can be redone
+     */
+    public int getRedoableMoveNumber() {
+        return moveLimit - moveNumber;
+    }
+
+    public Grid getGrid() {
+        return grid;
+    }
+
+    private void toggleFlag(int index) {
+        grid.toggleFlag(grid.widthOf(index), grid.heightOf(index));
+    }
+
+    private int moveStart(int move) {
+        return move == 0 ? 0 : moveEnds[move - 1];
+    }
+
+    private void ensureCellCapacity(int capacity) {
+        if (capacity > cellLog.length) {
+            cellLog = Arrays.copyOf(cellLog, Math.max(cellLog.length * 2, capacity));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.mlallaouret.minesweeper;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Bounded pool of grids kept by dimensions, so a new game reuses the storage of a finished one instead of
+ * allocating a new grid.
+ * <p>
+ * A grid is given back with {@link #release(Grid)} once its game is over and nothing reads it anymore. At most
+ * maxGridsPerSize grids are kept for each size and at most maxSizes sizes are pooled, the other grids are left to
+ * the garbage collector. The sizes are found in a small array, so once a size is pooled taking and giving back its
+ * grids allocates nothing. The pool can be shared between threads.
+ */
+public class GridPool {
+    private final int maxSizes;
+    private final int maxGridsPerSize;
+    private volatile SizePool[] sizePools = new SizePool[0];
+
+    public GridPool(int maxSizes, int maxGridsPerSize) {
+        if (maxSizes <= 0 || maxGridsPerSize <= 0) {
+            throw new IllegalArgumentException("The pool bounds must be positive");
+        }
+        this.maxSizes = maxSizes;
+        this.maxGridsPerSize = maxGridsPerSize;
+    }
+
+    /**
+     * Take a grid from the pool, or create one if there is none of this size.
+     * The grid is empty, its mines still have to be placed and counted.
+     *
+     * @param gridWidth     the width of the grid
+     * @param gridHeight    the height of the grid
+     * @param numberOfMines the number of mines on the grid
+     * @param seed          the seed of the mine positions
+     * @return an empty grid of this size
+     */
+    public Grid acquire(int gridWidth, int gridHeight, int numberOfMines, long seed) {
+        SizePool sizePool = find(gridWidth, gridHeight);
+        Grid grid = sizePool != null ? sizePool.grids.poll() : null;
+        if (grid == null) {
+            return new Grid(gridWidth, gridHeight, numberOfMines, seed);
+        }
+        grid.reset(seed, numberOfMines);
+        return grid;
+    }
+
+    /**
+     * Give a grid back to the pool, it is dropped if the pool is full
+     *
+     * @param grid a grid no longer used
+     * @return true if the grid is kept for a next game
+     */
+    public boolean release(Grid grid) {
+        SizePool sizePool = find(grid.getGridWidth(), grid.getGridHeight());
+        if (sizePool == null) {
+            sizePool = addSize(grid.getGridWidth(), grid.getGridHeight());
+            if (sizePool == null) {
+                return false;
+            }
+        }
+        return sizePool.grids.offer(grid);
+    }
+
+    /**
+     * @return the number of grids kept in the pool
+     */
+    public int size() {
+        int size = 0;
+        for (SizePool sizePool : sizePools) {
+            size += sizePool.grids.size();
+        }
+        return size;
+    }
+
+    private SizePool find(int gridWidth, int gridHeight) {
+        SizePool[] pools = sizePools;
+        for (int i = 0; i < pools.length; i++) {
+            if (pools[i].gridWidth == gridWidth && pools[i].gridHeight == gridHeight) {
+                return pools[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Add a size to the pool, the array is copied so it is read without lock
+     *
+     * @return the pool of the size, null if the pool already has its maximum number of sizes
+     */
+    private synchronized SizePool addSize(int gridWidth, int gridHeight) {
+        SizePool sizePool = find(gridWidth, gridHeight);
+        if (sizePool != null) {
+            return sizePool;
+        }
+        SizePool[] pools = sizePools;
+        if (pools.length >= maxSizes) {
+            return null;
+        }
+        SizePool[] newPools = new SizePool[pools.length + 1];
+        System.arraycopy(pools, 0, newPools, 0, pools.length);
+        sizePool = new SizePool(gridWidth, gridHeight, maxGridsPerSize);
+        newPools[pools.length] = sizePool;
+        sizePools = newPools;
+        return sizePool;
+    }
+
+    private static final class SizePool {
+        private final int gridWidth;
+        private final int gridHeight;
+        private final ArrayBlockingQueue<Grid> grids;
+
+        SizePool(int gridWidth, int gridHeight, int maxGrids) {
+            this.gridWidth = gridWidth;
+            this.gridHeight = gridHeight;
+            this.grids = new ArrayBlockingQueue<Grid>(maxGrids);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.mlallaouret.minesweeper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Draw a grid, or a part of it, as text.
+ * The whole drawing is written in a reusable byte buffer and sent to the output in a single write, so drawing a large
+ * grid does not cost one system call per cell.
+ * <p>
+ * For a game drawn after each move, the whole grid can be kept as a frame: it is drawn once, then only the cells
+ * changed by a move are patched in it, so a move costs the cells it revealed instead of formatting the whole grid.
+ * The frame is drawn again when the grid was reset or a move undone, see {@link Grid#getGeneration()}.
+ */
+public class GridRenderer {
+    private static final int INITIAL_BUFFER_CAPACITY = 1024;
+    private static final int MAX_INT_DIGITS = 10;
+
+    private byte[] buffer = new byte[INITIAL_BUFFER_CAPACITY];
+    private int position;
+    private Grid frameGrid;
+    private int frameGeneration;
+    private byte[] frame;
+    private int[] frameRowOffsets;
+    private int[] rowOffsets;
+
+    /**
+     * Draw the whole grid
+     *
+     * @param grid the grid to draw
+     * @param out  the stream receiving the drawing
+     * @throws IOException if the stream can't be written
+     */
+    public void render(Grid grid, OutputStream out) throws IOException {
+        render(grid, out, 0, 0, grid.getGridWidth(), grid.getGridHeight());
+    }
+
+    /**
+     * Draw a viewport of the grid, the cost only depends on the size of the viewport
+     *
+     * @param grid         the grid to draw
+     * @param out          the stream receiving the drawing
+     * @param firstWidth   the width coordinate of the first column to draw
+     * @param firstHeight  the height coordinate of the first line to draw
+     * @param widthNumber  the number of columns to draw, reduced if the grid is not wide enough
+     * @param heightNumber the number of lines to draw, reduced if the grid is not high enough
+     * @throws IOException if the stream can't be written
+     */
+    public void render(Grid grid, OutputStream out, int firstWidth, int firstHeight, int widthNumber,
+                       int heightNumber) throws IOException {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        draw(grid, firstHeight, firstWidth, heightNumber, widthNumber);
+        out.write(buffer, 0, position);
+        out.flush();
+        if (Metrics.ENABLED) {
+            Metrics.RENDER_NANOS.record(System.nanoTime() - start);
+        }
+    }
+
+    private void draw(Grid grid, int firstHeight, int firstWidth, int heightNumber, int widthNumber) {
+        if (firstHeight < 0 || firstWidth < 0 || heightNumber < 0 || widthNumber < 0) {
+            throw new IllegalArgumentException("Wrong viewport");
+        }
+        int lastHeight = (int) Math.min((long) firstHeight + heightNumber, grid.getGridHeight());
+        int lastWidth = (int) Math.min((long) firstWidth + widthNumber, grid.getGridWidth());
+        position = 0;
+
+        drawHeader(firstWidth, lastWidth);
+        for (int i = firstHeight; i < lastHeight; i++) {
+            drawLine(grid, i, firstWidth, lastWidth);
+        }
+        drawSeparator(lastWidth - firstWidth);
+    }
+
+    /**
+     * Write the frame of the whole grid, drawing it only if it has not been drawn yet for this grid and generation
+     *
+     * @param grid the grid to draw
+     * @param out  the stream receiving the drawing
+     * @throws IOException if the stream can't be written
+     */
+    public void renderFrame(Grid grid, OutputStream out) throws IOException {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        if (frameGrid != grid || frameGeneration != grid.getGeneration()
+                || frameRowOffsets.length != grid.getGridHeight()) {
+            rowOffsets = new int[grid.getGridHeight()];
+            draw(grid, 0, 0, grid.getGridHeight(), grid.getGridWidth());
+            frame = Arrays.copyOf(buffer, position);
+            frameRowOffsets = rowOffsets;
+            rowOffsets = null;
+            frameGrid = grid;
+            frameGeneration = grid.getGeneration();
+        }
+        out.write(frame);
+        out.flush();
+        if (Metrics.ENABLED) {
+            Metrics.RENDER_NANOS.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Update the cells revealed by a move in the frame
+     *
+     * @param delta the cells revealed
+     */
+    public void patchFrame(RevealDelta delta) {
+        if (frameGrid != delta.getGrid() || frameGeneration != frameGrid.getGeneration()) {
+            return;
+        }
+        for (int i = 0; i < delta.size(); i++) {
+            patchFrame(delta.getGrid(), delta.getIndex(i));
+        }
+    }
+
+    /**
+     * Update a cell in the frame, after a flag was toggled for instance
+     *
+     * @param grid  the grid of the frame
+     * @param index the index of the cell which changed
+     */
+    public void patchFrame(Grid grid, int index) {
+        if (frameGrid != grid || frameGeneration != grid.getGeneration()) {
+            return;
+        }
+        int height = index / grid.getGridWidth();
+        int width = index - height * grid.getGridWidth();
+        frame[frameRowOffsets[height] + 2 * width + 1] = cellCharacter(grid.getCells()[index]);
+    }
+
+    /**
+     * Forget the frame, so the next call to {@link #renderFrame(Grid, OutputStream)} draws the grid again
+     */
+    public void clearFrame() {
+        frameGrid = null;
+        frame = null;
+        frameRowOffsets = null;
+    }
+
+    private void drawHeader(int firstWidth, int lastWidth) {
+        ensureCapacity(2 + (lastWidth - firstWidth) * (MAX_INT_DIGITS + 1) + 2);
+        buffer[position++] = ' ';
+        for (int i = firstWidth; i < lastWidth; i++) {
+            buffer[position++] = '|';
+            appendInt(i);
+        }
+        buffer[position++] = '|';
+        buffer[position++] = '\n';
+        drawSeparator(lastWidth - firstWidth);
+    }
+
+    private void drawSeparator(int widthNumber) {
+        ensureCapacity(2 * widthNumber + 3);
+        for (int i = 0; i <= widthNumber; i++) {
+            buffer[position++] = '-';
+            buffer[position++] = '-';
+        }
+        buffer[position++] = '\n';
+    }
+
+    private void drawLine(Grid grid, int lineNumber, int firstWidth, int lastWidth) {
+        ensureCapacity(MAX_INT_DIGITS + 2 * (lastWidth - firstWidth) + 2);
+        appendInt(lineNumber);
+        if (rowOffsets != null) {
+            rowOffsets[lineNumber] = position;
+        }
+        byte[] cells = grid.getCells();
+        for (int index = lineNumber * grid.getGridWidth() + firstWidth,
+             end = lineNumber * grid.getGridWidth() + lastWidth; index < end; index++) {
+            buffer[position++] = '|';
+            buffer[position++] = cellCharacter(cells[index]);
+        }
+        buffer[position++] = '|';
+        buffer[position++] = '\n';
+    }
+
+    private static byte cellCharacter(int value) {
+        if ((value & Grid.FLAGGED) != 0) {
+            return 'F';
+        } else if ((value & Grid.REVEALED) == 0) {
+            return 'X';
+        } else if ((value & Grid.MINE) != 0) {
+            return '*';
+        }
+        return (byte) ('0' + (value & Grid.MINE_AROUND_MASK));
+    }
+
+    /**
+     * Write the decimal digits of a positive number in the buffer, the capacity must have been ensured
+     */
+    private void appendInt(int number) {
+        int digits = 1;
+        for (int i = number; i >= 10; i /= 10) {
+            digits++;
+        }
+        for (int i = position + digits - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + number % 10);
+            number /= 10;
+        }
+        position += digits;
+    }
+
+    private void ensureCapacity(int length) {
+        if (position + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.mlallaouret.minesweeper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Save and load a grid in a compact binary file.
+ * <p>
+ * The file starts with a header of {@value #HEADER_SIZE} bytes: the magic number, the format version, the width,
+ * the height, the number of mines, the remaining empty cells and the seed. Then come three bit planes, the mines, the
+ * revealed cells and the flags, each one bit per cell packed in little endian longs. The mine around numbers are not
+ * stored, they are calculated again on load.
+ * <p>
+ * The planes are written with positional writes of small buffers and read through a memory mapping, so a grid of
+ * hundreds of millions of cells is loaded in one pass over its bits without copying the file in memory first.
+ */
+public final class GridSnapshot {
+    static final int MAGIC = 0x4D535750;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+    private static final int MINE_SHIFT = Integer.numberOfTrailingZeros(Grid.MINE);
+    private static final int REVEALED_SHIFT = Integer.numberOfTrailingZeros(Grid.REVEALED);
+    private static final int FLAGGED_SHIFT = Integer.numberOfTrailingZeros(Grid.FLAGGED);
+
+    private GridSnapshot() {
+    }
+
+    /**
+     * Write the grid in a file, replacing it if it exists
+     *
+     * @param grid the grid to save
+     * @param path the file to write
+     * @throws IOException if the file can't be written
+     */
+    public static void save(Grid grid, Path path) throws IOException {
+        byte[] cells = grid.getCells();
+        long planeSize = planeSize(cells.length);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(grid.getGridWidth()).putInt(grid.getGridHeight())
+                    .putInt(grid.getNumberOfMines()).putInt(grid.getRemainingEmptyCell()).putLong(grid.getSeed());
+            header.flip();
+            writeFully(channel, header, 0);
+
+            ByteBuffer mines = newWriteBuffer();
+            ByteBuffer revealed = newWriteBuffer();
+            ByteBuffer flags = newWriteBuffer();
+            long planePosition = 0;
+            for (int base = 0; base < cells.length; base += Long.SIZE) {
+                long mineWord = 0;
+                long revealedWord = 0;
+                long flagWord = 0;
+                for (int i = 0, end = Math.min(Long.SIZE, cells.length - base); i < end; i++) {
+                    int value = cells[base + i];
+                    mineWord |= (long) ((value >>> MINE_SHIFT) & 1) << i;
+                    revealedWord |= (long) ((value >>> REVEALED_SHIFT) & 1) << i;
+                    flagWord |= (long) ((value >>> FLAGGED_SHIFT) & 1) << i;
+                }
+                mines.putLong(mineWord);
+                revealed.putLong(revealedWord);
+                flags.putLong(flagWord);
+                if (!mines.hasRemaining()) {
+                    writePlanes(channel, planeSize, planePosition, mines, revealed, flags);
+                    planePosition += WRITE_BUFFER_SIZE;
+                }
+            }
+            writePlanes(channel, planeSize, planePosition, mines, revealed, flags);
+        }
+    }
+
+    /**
+     * Read a grid from a file
+     *
+     * @param path the file written by {@link #save(Grid, Path)}
+     * @return the grid, with its mine around numbers calculated
+     * @throws IOException if the file can't be read or is not a valid snapshot
+     */
+    public static Grid load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Read until the header is complete or the file ends
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+                throw new IOException("Not a grid snapshot");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            int gridWidth = header.getInt();
+            int gridHeight = header.getInt();
+            int numberOfMines = header.getInt();
+            int remainingEmptyCell = header.getInt();
+            long seed = header.getLong();
+            long cellNumber = (long) gridWidth * gridHeight;
+            if (gridWidth <= 0 || gridHeight <= 0 || cellNumber > Integer.MAX_VALUE) {
+                throw new IOException("Wrong grid dimensions");
+            }
+            long planeSize = planeSize((int) cellNumber);
+            if (channel.size() != HEADER_SIZE + 3 * planeSize) {
+                throw new IOException("Truncated snapshot");
+            }
+
+            Grid grid = new Grid(gridWidth, gridHeight, numberOfMines, seed);
+            long mines = decodePlanes(grid.getCells(), map(channel, HEADER_SIZE, planeSize),
+                    map(channel, HEADER_SIZE + planeSize, planeSize),
+                    map(channel, HEADER_SIZE + 2 * planeSize, planeSize));
+            if (mines != numberOfMines) {
+                throw new IOException("Corrupted snapshot, " + mines + " mines instead of " + numberOfMines);
+            }
+            grid.setRemainingEmptyCell(remainingEmptyCell);
+            grid.calculateFlagAroundNumber();
+            // Counting the mines around is most of the loading time, split it when there are cores to share it
+            if (ForkJoinPool.getCommonPoolParallelism() > 1) {
+                grid.calculateMineAroundNumber(ForkJoinPool.commonPool());
+            } else {
+                grid.calculateMineAroundNumber();
+            }
+            return grid;
+        }
+    }
+
+    /**
+     * Unpack the three planes in the cells, which are already cleared, so only the set bits are visited
+     *
+     * @return the number of mines read
+     */
+    private static long decodePlanes(byte[] cells, LongBuffer mines, LongBuffer revealed, LongBuffer flags) {
+        long mineNumber = 0;
+        for (int word = 0, base = 0; base < cells.length; word++, base += Long.SIZE) {
+            long mineWord = mines.get(word);
+            mineNumber += Long.bitCount(mineWord);
+            setBits(cells, base, mineWord, Grid.MINE);
+            setBits(cells, base, revealed.get(word), Grid.REVEALED);
+            setBits(cells, base, flags.get(word), Grid.FLAGGED);
+        }
+        return mineNumber;
+    }
+
+    private static void setBits(byte[] cells, int base, long word, int bit) {
+        for (long bits = word; bits != 0; bits &= bits - 1) {
+            cells[base + Long.numberOfTrailingZeros(bits)] |= bit;
+        }
+    }
+
+    private static LongBuffer map(FileChannel channel, long position, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN)
+                .asLongBuffer();
+    }
+
+    private static void writePlanes(FileChannel channel, long planeSize, long planePosition, ByteBuffer mines,
+                                    ByteBuffer revealed, ByteBuffer flags) throws IOException {
+        mines.flip();
+        revealed.flip();
+        flags.flip();
+        writeFully(channel, mines, HEADER_SIZE + planePosition);
+        writeFully(channel, revealed, HEADER_SIZE + planeSize + planePosition);
+        writeFully(channel, flags, HEADER_SIZE + 2 * planeSize + planePosition);
+        mines.clear();
+        revealed.clear();
+        flags.clear();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static ByteBuffer newWriteBuffer() {
+        return ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @return the size in bytes of a plane of one bit per cell, rounded up to whole longs
+     */
+    private static long planeSize(int cellNumber) {
+        return ((cellNumber + (long) Long.SIZE - 1) / Long.SIZE) * Long.BYTES;
+    }
+}
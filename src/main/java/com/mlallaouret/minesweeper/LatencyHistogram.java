@@ -0,0 +1,65 @@
+package com.mlallaouret.minesweeper;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count recorded values in logarithmic buckets, each power of two being split in {@value #SUB_BUCKETS} linear
+ * buckets, so any positive long is recorded in a fixed array with a precision of about 6%.
+ * Recording is lock free and can be done from any thread.
+ */
+public class LatencyHistogram {
+    static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int BUCKET_NUMBER = SUB_BUCKETS * (Long.SIZE - SUB_BUCKET_BITS);
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_NUMBER);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param value the value to record, negative values are recorded as 0
+     */
+    public void record(long value) {
+        long positiveValue = Math.max(value, 0);
+        counts.incrementAndGet(bucketOf(positiveValue));
+        count.increment();
+        sum.add(positiveValue);
+        max.accumulate(positiveValue);
+    }
+
+    /**
+     * Copy the counts, the copy is not atomic: values recorded during the copy may be partly taken into account
+     *
+     * @return the values recorded so far
+     */
+    public HistogramSnapshot snapshot() {
+        long[] bucketCounts = new long[BUCKET_NUMBER];
+        for (int i = 0; i < BUCKET_NUMBER; i++) {
+            bucketCounts[i] = counts.get(i);
+        }
+        return new HistogramSnapshot(bucketCounts, count.sum(), sum.sum(), max.get());
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return SUB_BUCKETS * (shift + 1) + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * @return the lowest value recorded in a bucket
+     */
+    static long lowestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    }
+}
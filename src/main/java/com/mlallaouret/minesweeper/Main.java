@@ -1,19 +1,54 @@
 package com.mlallaouret.minesweeper;
 
 
-import org.apache.commons.lang3.tuple.Pair;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 
 /**
  * Created by mlallaouret on 5/22/15.
  */
 public class Main {
 
-    public static void main(String[] args) {
+    public static final String SERVER_OPTION = "--server";
+    public static final String SIMULATE_OPTION = "--simulate";
+    public static final String STREAM_OPTION = "--stream";
+
+    public static void main(String[] args) throws Exception {
+        if (Metrics.isEnabled()) {
+            Metrics.registerMBean();
+        }
+        if (args.length == 2 && SERVER_OPTION.equals(args[0])) {
+            GameServer gameServer = new GameServer(Integer.parseInt(args[1]));
+            gameServer.start();
+            System.out.println("Minesweeper server listening on port " + gameServer.getPort());
+            gameServer.awaitTermination();
+            return;
+        }
+        if (args.length == 5 && SIMULATE_OPTION.equals(args[0])) {
+            Simulator simulator = new Simulator(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                    Integer.parseInt(args[3]));
+            System.out.println(simulator.run(Long.parseLong(args[4]), System.nanoTime()));
+            return;
+        }
+        if (args.length == 1 && STREAM_OPTION.equals(args[0])) {
+            new CommandStream(new FileInputStream(FileDescriptor.in).getChannel(),
+                    new FileOutputStream(FileDescriptor.out).getChannel()).run();
+            return;
+        }
+
         Game game = new Game();
-        Pair<Integer, Integer> gridSize = game.askPlayerForGridSize();
-        int minesNumber = game.askPlayerForNumberOfMines(gridSize.getKey(), gridSize.getValue());
+        // The standard boards are generated while the player chooses the size
+        BoardPregenerator boardPregenerator = new BoardPregenerator(1, 1, new GridPool(1, 1));
+        boardPregenerator.addStandardDifficulties();
+        game.setBoardPregenerator(boardPregenerator);
+        int[] gridSize = game.askPlayerForGridSize();
+        int gridWidth = gridSize[0];
+        int gridHeight = gridSize[1];
+        int minesNumber = game.askPlayerForNumberOfMines(gridWidth, gridHeight);
 
-        game.initializeGame(gridSize.getKey(), gridSize.getValue(), minesNumber);
+        game.initializeGame(gridWidth, gridHeight, minesNumber);
+        boardPregenerator.close();
         game.playGame();
 
     }
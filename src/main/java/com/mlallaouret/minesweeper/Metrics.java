@@ -0,0 +1,110 @@
+package com.mlallaouret.minesweeper;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and histograms of the hot paths of the engine: grid generation, mine counting, flood fills, moves and
+ * rendering.
+ * <p>
+ * The metrics are recorded only when the JVM is started with -D{@value #PROPERTY}=true. The flag is a static final
+ * constant, so when it is false the JIT removes the recording code and the hot paths run as if it was not there.
+ * The values are read with {@link #snapshot()}, or through JMX once {@link #registerMBean()} has been called.
+ */
+public final class Metrics {
+    public static final String PROPERTY = "minesweeper.metrics";
+    public static final String OBJECT_NAME = "com.mlallaouret.minesweeper:type=Metrics";
+
+    static final boolean ENABLED = Boolean.getBoolean(PROPERTY);
+
+    static final LongAdder MOVES = new LongAdder();
+    static final LatencyHistogram GENERATION_NANOS = new LatencyHistogram();
+    static final LatencyHistogram COUNTING_NANOS = new LatencyHistogram();
+    static final LatencyHistogram REVEAL_NANOS = new LatencyHistogram();
+    static final LatencyHistogram REVEALED_CELLS = new LatencyHistogram();
+    static final LatencyHistogram RENDER_NANOS = new LatencyHistogram();
+
+    private Metrics() {
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * @return the values recorded since the start of the JVM, all 0 when the metrics are disabled
+     */
+    public static MetricsSnapshot snapshot() {
+        return new MetricsSnapshot(System.nanoTime(), MOVES.sum(), GENERATION_NANOS.snapshot(),
+                COUNTING_NANOS.snapshot(), REVEAL_NANOS.snapshot(), REVEALED_CELLS.snapshot(),
+                RENDER_NANOS.snapshot());
+    }
+
+    /**
+     * Register the metrics in the platform MBean server under {@value #OBJECT_NAME}, nothing is done if they already
+     * are
+     *
+     * @throws IllegalStateException if the MBean can't be registered
+     */
+    public static synchronized void registerMBean() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MetricsBean(), name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Can't register the metrics MBean", e);
+        }
+    }
+
+    private static final class MetricsBean implements MetricsMXBean {
+        private MetricsSnapshot previous = snapshot();
+
+        @Override
+        public boolean isEnabled() {
+            return ENABLED;
+        }
+
+        @Override
+        public long getMoves() {
+            return MOVES.sum();
+        }
+
+        @Override
+        public synchronized double getMovesPerSecond() {
+            MetricsSnapshot current = snapshot();
+            double movesPerSecond = current.getMovesPerSecondSince(previous);
+            previous = current;
+            return movesPerSecond;
+        }
+
+        @Override
+        public HistogramSnapshot getGenerationNanos() {
+            return GENERATION_NANOS.snapshot();
+        }
+
+        @Override
+        public HistogramSnapshot getCountingNanos() {
+            return COUNTING_NANOS.snapshot();
+        }
+
+        @Override
+        public HistogramSnapshot getRevealNanos() {
+            return REVEAL_NANOS.snapshot();
+        }
+
+        @Override
+        public HistogramSnapshot getRevealedCells() {
+            return REVEALED_CELLS.snapshot();
+        }
+
+        @Override
+        public HistogramSnapshot getRenderNanos() {
+            return RENDER_NANOS.snapshot();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.mlallaouret.minesweeper;
+
+/**
+ * Management interface of the engine metrics, registered by {@link Metrics#registerMBean()}.
+ * The durations are in nanoseconds.
+ */
+public interface MetricsMXBean {
+
+    boolean isEnabled();
+
+    long getMoves();
+
+    /**
+     * @return the moves per second since the previous call, or since the registration for the first call
+     */
+    double getMovesPerSecond();
+
+    HistogramSnapshot getGenerationNanos();
+
+    HistogramSnapshot getCountingNanos();
+
+    HistogramSnapshot getRevealNanos();
+
+    HistogramSnapshot getRevealedCells();
+
+    HistogramSnapshot getRenderNanos();
+}
@@ -0,0 +1,76 @@
+package com.mlallaouret.minesweeper;
+
+/**
+ * The engine metrics at a point in time, see {@link Metrics#snapshot()}.
+ * The durations are in nanoseconds, rates are computed between two snapshots.
+ */
+public final class MetricsSnapshot {
+    private final long timestamp;
+    private final long moves;
+    private final HistogramSnapshot generationNanos;
+    private final HistogramSnapshot countingNanos;
+    private final HistogramSnapshot revealNanos;
+    private final HistogramSnapshot revealedCells;
+    private final HistogramSnapshot renderNanos;
+
+    MetricsSnapshot(long timestamp, long moves, HistogramSnapshot generationNanos, HistogramSnapshot countingNanos,
+                    HistogramSnapshot revealNanos, HistogramSnapshot revealedCells, HistogramSnapshot renderNanos) {
+        this.timestamp = timestamp;
+        this.moves = moves;
+        this.generationNanos = generationNanos;
+        this.countingNanos = countingNanos;
+        this.revealNanos = revealNanos;
+        this.revealedCells = revealedCells;
+        this.renderNanos = renderNanos;
+    }
+
+    /**
+     * @param previous a snapshot taken before this one
+     * @return the moves per second between the two snapshots
+     */
+    public double getMovesPerSecondSince(MetricsSnapshot previous) {
+        long elapsed = timestamp - previous.timestamp;
+        return elapsed <= 0 ? 0 : (moves - previous.moves) * 1e9 / elapsed;
+    }
+
+    /**
+     * @return the time of the snapshot, from {@link System#nanoTime()}
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getMoves() {
+        return moves;
+    }
+
+    public HistogramSnapshot getGenerationNanos() {
+        return generationNanos;
+    }
+
+    public HistogramSnapshot getCountingNanos() {
+        return countingNanos;
+    }
+
+    public HistogramSnapshot getRevealNanos() {
+        return revealNanos;
+    }
+
+    public HistogramSnapshot getRevealedCells() {
+        return revealedCells;
+    }
+
+    public HistogramSnapshot getRenderNanos() {
+        return renderNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "moves " + moves
+                + "\ngeneration ns " + generationNanos
+                + "\ncounting ns " + countingNanos
+                + "\nreveal ns " + revealNanos
+                + "\nrevealed cells " + revealedCells
+                + "\nrender ns " + renderNanos;
+    }
+}
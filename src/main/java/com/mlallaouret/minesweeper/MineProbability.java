@@ -0,0 +1,493 @@
+package com.mlallaouret.minesweeper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Compute the exact probability that each hidden cell of a grid holds a mine, from what the player can see.
+ * <p>
+ * The hidden cells next to the frontier of a {@link Solver} are split into independent components: two cells are in
+ * the same component when a chain of revealed numbers links them. The mine configurations of every component are
+ * enumerated by backtracking, the top of the search tree being forked on a {@link ForkJoinPool}. The components are
+ * then combined, each total of frontier mines being weighted by the number of ways to place the other mines in the
+ * unconstrained cells.
+ */
+public class MineProbability {
+    private static final int SEQUENTIAL_VARIABLES = 12;
+    private static final int MAX_SPLIT_DEPTH = 8;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Build an engine enumerating the configurations in the calling thread
+     */
+    public MineProbability() {
+        this(null);
+    }
+
+    /**
+     * @param pool the pool enumerating the configurations, null to enumerate them in the calling thread
+     */
+    public MineProbability(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Compute the probabilities of every cell of the solver grid
+     *
+     * @param solver the solver holding the frontier and the deduced mines of the grid
+     * @return the probability of a mine for each cell, indexed like the grid: 0 for revealed cells, 1 for the mines
+     * deduced by the solver
+     * @throws IllegalStateException if the revealed numbers can't match the number of mines of the grid
+     */
+    public double[] computeProbabilities(Solver solver) {
+        Grid grid = solver.getGrid();
+        byte[] cells = grid.getCells();
+        BitSet knownMines = solver.getKnownMines();
+        double[] probabilities = new double[cells.length];
+
+        List<Component> components = buildComponents(solver);
+        BitSet constrainedCells = new BitSet(cells.length);
+        for (Component component : components) {
+            for (int cell : component.cells) {
+                constrainedCells.set(cell);
+            }
+        }
+        int interiorCells = 0;
+        for (int index = 0; index < cells.length; index++) {
+            if ((cells[index] & Grid.REVEALED) == 0 && !knownMines.get(index) && !constrainedCells.get(index)) {
+                interiorCells++;
+            }
+        }
+        int remainingMines = grid.getNumberOfMines() - knownMines.cardinality();
+        if (remainingMines < 0) {
+            throw new IllegalStateException("No mine configuration matches the grid");
+        }
+
+        List<EnumerationTask> tasks = new ArrayList<EnumerationTask>();
+        for (Component component : components) {
+            tasks.add(new EnumerationTask(component));
+        }
+        final List<Enumeration> enumerations = new ArrayList<Enumeration>();
+        if (pool == null) {
+            for (EnumerationTask task : tasks) {
+                enumerations.add(task.enumerateAll());
+            }
+        } else if (!tasks.isEmpty()) {
+            pool.invoke(new RecursiveTask<Void>() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected Void compute() {
+                    invokeAll(tasks);
+                    return null;
+                }
+            });
+            for (EnumerationTask task : tasks) {
+                enumerations.add(task.join());
+            }
+        }
+
+        // Convolutions of the mine number distributions of the components before and after each component
+        int componentNumber = enumerations.size();
+        double[][] prefix = new double[componentNumber + 1][];
+        double[][] suffix = new double[componentNumber + 1][];
+        prefix[0] = new double[]{1};
+        suffix[componentNumber] = new double[]{1};
+        for (int i = 0; i < componentNumber; i++) {
+            prefix[i + 1] = convolve(prefix[i], enumerations.get(i).configurations);
+            suffix[componentNumber - 1 - i] = convolve(enumerations.get(componentNumber - 1 - i).configurations,
+                    suffix[componentNumber - i]);
+        }
+        double[] all = prefix[componentNumber];
+        double[] interiorWeights = interiorWeights(interiorCells, remainingMines, all.length - 1);
+
+        double total = 0;
+        double interiorMines = 0;
+        for (int k = 0; k < all.length; k++) {
+            double weight = all[k] * interiorWeight(interiorWeights, remainingMines - k);
+            total += weight;
+            interiorMines += weight * (remainingMines - k);
+        }
+        if (total == 0) {
+            throw new IllegalStateException("No mine configuration matches the grid");
+        }
+
+        for (int i = 0; i < componentNumber; i++) {
+            Enumeration enumeration = enumerations.get(i);
+            double[] others = convolve(prefix[i], suffix[i + 1]);
+            // weights[k] is the weight of the configurations of the component holding k mines
+            double[] weights = new double[enumeration.configurations.length];
+            for (int k = 0; k < weights.length; k++) {
+                for (int l = 0; l < others.length; l++) {
+                    weights[k] += others[l] * interiorWeight(interiorWeights, remainingMines - k - l);
+                }
+            }
+            Component component = components.get(i);
+            for (int variable = 0; variable < component.cells.length; variable++) {
+                double mines = 0;
+                for (int k = 0; k < weights.length; k++) {
+                    mines += enumeration.cellMines[variable][k] * weights[k];
+                }
+                probabilities[component.cells[variable]] = mines / total;
+            }
+        }
+
+        double interiorProbability = interiorCells > 0 ? interiorMines / total / interiorCells : 0;
+        for (int index = 0; index < cells.length; index++) {
+            if (knownMines.get(index)) {
+                probabilities[index] = 1;
+            } else if ((cells[index] & Grid.REVEALED) == 0 && !constrainedCells.get(index)) {
+                probabilities[index] = interiorProbability;
+            }
+        }
+        return probabilities;
+    }
+
+    /**
+     * Find the hidden cell the least likely to hold a mine, the cell to play when the solver is stuck
+     *
+     * @param solver the solver holding the frontier and the deduced mines of the grid
+     * @return the index of the safest hidden cell, -1 if every cell is revealed or deduced as a mine
+     */
+    public int findSafestCell(Solver solver) {
+        double[] probabilities = computeProbabilities(solver);
+        byte[] cells = solver.getGrid().getCells();
+        int safestCell = -1;
+        for (int index = 0; index < cells.length; index++) {
+            if ((cells[index] & Grid.REVEALED) == 0 && !solver.isKnownMine(index)
+                    && (safestCell < 0 || probabilities[index] < probabilities[safestCell])) {
+                safestCell = index;
+            }
+        }
+        return safestCell;
+    }
+
+    /**
+     * Link the hidden cells around the frontier into components sharing no constraint
+     */
+    private List<Component> buildComponents(Solver solver) {
+        Grid grid = solver.getGrid();
+        byte[] cells = grid.getCells();
+        BitSet knownMines = solver.getKnownMines();
+        BitSet frontier = solver.getFrontier();
+        int[] neighbours = new int[Grid.NEIGHBOUR_NUMBER];
+
+        // Constraints, and variable ids of the hidden cells through a union find
+        List<int[]> constraintCells = new ArrayList<int[]>();
+        List<Integer> constraintMines = new ArrayList<Integer>();
+        int[] variableOf = new int[cells.length];
+        Arrays.fill(variableOf, -1);
+        int[] variableCells = new int[16];
+        int[] parents = new int[16];
+        int variableNumber = 0;
+        for (int index = frontier.nextSetBit(0); index >= 0; index = frontier.nextSetBit(index + 1)) {
+            int neighbourNumber = grid.getNeighbourIndexes(index, neighbours);
+            int mines = 0;
+            int hiddenCells = 0;
+            for (int i = 0; i < neighbourNumber; i++) {
+                int neighbour = neighbours[i];
+                if (knownMines.get(neighbour)) {
+                    mines++;
+                } else if ((cells[neighbour] & Grid.REVEALED) == 0) {
+                    neighbours[hiddenCells++] = neighbour;
+                }
+            }
+            if (hiddenCells == 0) {
+                continue;
+            }
+            int[] constraint = Arrays.copyOf(neighbours, hiddenCells);
+            for (int cell : constraint) {
+                if (variableOf[cell] < 0) {
+                    if (variableNumber == variableCells.length) {
+                        variableCells = Arrays.copyOf(variableCells, variableNumber * 2);
+                        parents = Arrays.copyOf(parents, variableNumber * 2);
+                    }
+                    variableOf[cell] = variableNumber;
+                    variableCells[variableNumber] = cell;
+                    parents[variableNumber] = variableNumber;
+                    variableNumber++;
+                }
+                union(parents, variableOf[constraint[0]], variableOf[cell]);
+            }
+            constraintCells.add(constraint);
+            constraintMines.add((cells[index] & Grid.MINE_AROUND_MASK) - mines);
+        }
+
+        // Group the variables and constraints by root
+        int[] componentOf = new int[variableNumber];
+        Arrays.fill(componentOf, -1);
+        List<List<Integer>> componentVariables = new ArrayList<List<Integer>>();
+        List<List<Integer>> componentConstraints = new ArrayList<List<Integer>>();
+        for (int variable = 0; variable < variableNumber; variable++) {
+            int root = find(parents, variable);
+            if (componentOf[root] < 0) {
+                componentOf[root] = componentVariables.size();
+                componentVariables.add(new ArrayList<Integer>());
+                componentConstraints.add(new ArrayList<Integer>());
+            }
+            componentOf[variable] = componentOf[root];
+            componentVariables.get(componentOf[variable]).add(variable);
+        }
+        for (int constraint = 0; constraint < constraintCells.size(); constraint++) {
+            componentConstraints.get(componentOf[variableOf[constraintCells.get(constraint)[0]]]).add(constraint);
+        }
+
+        List<Component> components = new ArrayList<Component>();
+        int[] localVariable = new int[variableNumber];
+        for (int i = 0; i < componentConstraints.size(); i++) {
+            // Variables numbered in the order the constraints reach them, so the constraints close early
+            List<Integer> constraints = componentConstraints.get(i);
+            List<Integer> variables = componentVariables.get(i);
+            Arrays.fill(localVariable, -1);
+            int[] componentCells = new int[variables.size()];
+            int localNumber = 0;
+            int[][] constraintVariables = new int[constraints.size()][];
+            int[] mines = new int[constraints.size()];
+            for (int c = 0; c < constraints.size(); c++) {
+                int[] constraint = constraintCells.get(constraints.get(c));
+                constraintVariables[c] = new int[constraint.length];
+                mines[c] = constraintMines.get(constraints.get(c));
+                for (int v = 0; v < constraint.length; v++) {
+                    int variable = variableOf[constraint[v]];
+                    if (localVariable[variable] < 0) {
+                        localVariable[variable] = localNumber;
+                        componentCells[localNumber++] = constraint[v];
+                    }
+                    constraintVariables[c][v] = localVariable[variable];
+                }
+            }
+            components.add(new Component(componentCells, constraintVariables, mines));
+        }
+        return components;
+    }
+
+    private static int find(int[] parents, int variable) {
+        while (parents[variable] != variable) {
+            parents[variable] = parents[parents[variable]];
+            variable = parents[variable];
+        }
+        return variable;
+    }
+
+    private static void union(int[] parents, int first, int second) {
+        parents[find(parents, first)] = find(parents, second);
+    }
+
+    private static double[] convolve(double[] first, double[] second) {
+        double[] result = new double[first.length + second.length - 1];
+        for (int i = 0; i < first.length; i++) {
+            if (first[i] == 0) {
+                continue;
+            }
+            for (int j = 0; j < second.length; j++) {
+                result[i + j] += first[i] * second[j];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Number of ways to place n mines in the interior cells, for n from remainingMines - maxFrontierMines to
+     * remainingMines, scaled by the largest one to stay in the double range
+     */
+    private static double[] interiorWeights(int interiorCells, int remainingMines, int maxFrontierMines) {
+        double[] logWeights = new double[remainingMines + 1];
+        double logWeight = 0;
+        for (int n = 0; n <= Math.min(remainingMines, interiorCells); n++) {
+            logWeights[n] = logWeight;
+            // C(interiorCells, n + 1) = C(interiorCells, n) * (interiorCells - n) / (n + 1)
+            logWeight += Math.log(interiorCells - n) - Math.log(n + 1);
+        }
+        int from = Math.max(remainingMines - maxFrontierMines, 0);
+        int to = Math.min(remainingMines, interiorCells);
+        double max = Double.NEGATIVE_INFINITY;
+        for (int n = from; n <= to; n++) {
+            max = Math.max(max, logWeights[n]);
+        }
+        double[] weights = new double[remainingMines + 1];
+        for (int n = from; n <= to; n++) {
+            weights[n] = Math.exp(logWeights[n] - max);
+        }
+        return weights;
+    }
+
+    private static double interiorWeight(double[] interiorWeights, int interiorMines) {
+        return interiorMines >= 0 && interiorMines < interiorWeights.length ? interiorWeights[interiorMines] : 0;
+    }
+
+    /**
+     * Hidden cells linked by constraints, the variables of the constraints are the positions in cells
+     */
+    private static final class Component {
+        final int[] cells;
+        final int[][] constraintVariables;
+        final int[] constraintMines;
+        final int[][] variableConstraints;
+
+        Component(int[] cells, int[][] constraintVariables, int[] constraintMines) {
+            this.cells = cells;
+            this.constraintVariables = constraintVariables;
+            this.constraintMines = constraintMines;
+            int[] constraintNumbers = new int[cells.length];
+            for (int[] variables : constraintVariables) {
+                for (int variable : variables) {
+                    constraintNumbers[variable]++;
+                }
+            }
+            variableConstraints = new int[cells.length][];
+            for (int variable = 0; variable < cells.length; variable++) {
+                variableConstraints[variable] = new int[constraintNumbers[variable]];
+                constraintNumbers[variable] = 0;
+            }
+            for (int constraint = 0; constraint < constraintVariables.length; constraint++) {
+                for (int variable : constraintVariables[constraint]) {
+                    variableConstraints[variable][constraintNumbers[variable]++] = constraint;
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts of the valid configurations of a component: configurations[k] holds the configurations with k mines,
+     * cellMines[v][k] those of them with a mine on variable v
+     */
+    private static final class Enumeration {
+        final double[] configurations;
+        final double[][] cellMines;
+
+        Enumeration(int variableNumber) {
+            configurations = new double[variableNumber + 1];
+            cellMines = new double[variableNumber][variableNumber + 1];
+        }
+
+        void add(Enumeration other) {
+            for (int k = 0; k < configurations.length; k++) {
+                configurations[k] += other.configurations[k];
+            }
+            for (int v = 0; v < cellMines.length; v++) {
+                for (int k = 0; k < configurations.length; k++) {
+                    cellMines[v][k] += other.cellMines[v][k];
+                }
+            }
+        }
+    }
+
+    /**
+     * Enumerate the configurations of a component from a partial assignment, forking both values of the next
+     * variable while the remaining search tree is large enough
+     */
+    private static final class EnumerationTask extends RecursiveTask<Enumeration> {
+        private static final long serialVersionUID = 1L;
+
+        private final Component component;
+        private final int depth;
+        private final byte[] assignment;
+        private final int[] placedMines;
+        private final int[] unassignedVariables;
+        private final int mines;
+
+        EnumerationTask(Component component) {
+            this.component = component;
+            this.depth = 0;
+            this.assignment = new byte[component.cells.length];
+            this.placedMines = new int[component.constraintMines.length];
+            this.unassignedVariables = new int[component.constraintMines.length];
+            for (int constraint = 0; constraint < unassignedVariables.length; constraint++) {
+                unassignedVariables[constraint] = component.constraintVariables[constraint].length;
+            }
+            this.mines = 0;
+        }
+
+        private EnumerationTask(EnumerationTask parent, int value) {
+            this.component = parent.component;
+            this.depth = parent.depth + 1;
+            this.assignment = parent.assignment.clone();
+            this.placedMines = parent.placedMines.clone();
+            this.unassignedVariables = parent.unassignedVariables.clone();
+            this.mines = parent.mines + value;
+            assignment[parent.depth] = (byte) value;
+        }
+
+        @Override
+        protected Enumeration compute() {
+            int variableNumber = component.cells.length;
+            if (variableNumber - depth > SEQUENTIAL_VARIABLES && depth < MAX_SPLIT_DEPTH) {
+                List<EnumerationTask> children = new ArrayList<EnumerationTask>(2);
+                for (int value = 0; value <= 1; value++) {
+                    if (assign(depth, value)) {
+                        children.add(new EnumerationTask(this, value));
+                    }
+                    unassign(depth, value);
+                }
+                Enumeration enumeration = new Enumeration(variableNumber);
+                for (EnumerationTask child : invokeAll(children)) {
+                    enumeration.add(child.join());
+                }
+                return enumeration;
+            }
+            Enumeration enumeration = new Enumeration(variableNumber);
+            enumerate(depth, mines, enumeration);
+            return enumeration;
+        }
+
+        /**
+         * Enumerate the whole search tree in the calling thread
+         */
+        Enumeration enumerateAll() {
+            Enumeration enumeration = new Enumeration(component.cells.length);
+            enumerate(depth, mines, enumeration);
+            return enumeration;
+        }
+
+        private void enumerate(int variable, int mineNumber, Enumeration enumeration) {
+            if (variable == component.cells.length) {
+                enumeration.configurations[mineNumber]++;
+                for (int v = 0; v < variable; v++) {
+                    if (assignment[v] != 0) {
+                        enumeration.cellMines[v][mineNumber]++;
+                    }
+                }
+                return;
+            }
+            for (int value = 0; value <= 1; value++) {
+                if (assign(variable, value)) {
+                    assignment[variable] = (byte) value;
+                    enumerate(variable + 1, mineNumber + value, enumeration);
+                }
+                unassign(variable, value);
+            }
+            assignment[variable] = 0;
+        }
+
+        /**
+         * Update the constraints of a variable with a value
+         *
+         * @return false if a constraint can no longer be satisfied
+         */
+        private boolean assign(int variable, int value) {
+            boolean valid = true;
+            for (int constraint : component.variableConstraints[variable]) {
+                unassignedVariables[constraint]--;
+                placedMines[constraint] += value;
+                int target = component.constraintMines[constraint];
+                if (placedMines[constraint] > target
+                        || placedMines[constraint] + unassignedVariables[constraint] < target) {
+                    valid = false;
+                }
+            }
+            return valid;
+        }
+
+        private void unassign(int variable, int value) {
+            for (int constraint : component.variableConstraints[variable]) {
+                unassignedVariables[constraint]++;
+                placedMines[constraint] -= value;
+            }
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.mlallaouret.minesweeper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Record the moves of a game in an append only file, to replay the game later.
+ * <p>
+ * The journal listens to a {@link GameEngine}: the header holds the dimensions, the number of mines and the seed of
+ * the grid, which are enough to generate it again when the grid was built by
+ * {@link GameEngine#newGame(int, int, int, long)}. Otherwise, for a grid whose mines were repaired or loaded, see
+ * {@link Grid#isSeedReproducible()}, the mines follow the header, one bit per cell. Then each move is a record of
+ * {@value #RECORD_SIZE} bytes, its type, reveal, flag or chord, and the index of the cell played. Only the moves which changed the grid are recorded. The moves undone and played again through
+ * {@link GameEngine#undo()} and {@link GameEngine#redo()} are recorded too, without cell, so the replay ends in the
+ * same state as the game.
+ * <p>
+ * The records are gathered in a buffer written when full, when the game ends, or on {@link #flush()}, so recording a
+ * move costs a few bytes copied, not a system call. A record cut by a crash is ignored on replay.
+ */
+public class MoveJournal implements GameListener, Closeable {
+    static final int MAGIC = 0x4D534A4E;
+    static final int VERSION = 3;
+    /**
+     * The older versions are still replayed: the first one has no undo and redo records, the second one adds them,
+     * the third one adds the header flags and the mine layout
+     */
+    static final int FIRST_VERSION = 1;
+    static final int UNDO_VERSION = 2;
+    static final int MINE_LAYOUT_VERSION = 3;
+    /**
+     * Header flag telling the mine layout follows the header
+     */
+    static final int MINE_LAYOUT = 1;
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_SIZE = 5;
+
+    static final byte REVEAL = 1;
+    static final byte FLAG = 2;
+    static final byte CHORD = 3;
+    static final byte UNDO = 4;
+    static final byte REDO = 5;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private long moveNumber;
+
+    private MoveJournal(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Create a journal for a new game, replacing the file if it exists
+     *
+     * @param path the file to write
+     * @param grid the grid of the game, generated from its seed and not played yet
+     * @return the journal, to add as listener of the engine
+     * @throws IOException if the file can't be written
+     */
+    public static MoveJournal create(Path path, Grid grid) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        MoveJournal journal = new MoveJournal(channel);
+        boolean mineLayout = !grid.isSeedReproducible();
+        journal.buffer.putInt(MAGIC).putInt(VERSION).putInt(grid.getGridWidth()).putInt(grid.getGridHeight())
+                .putInt(grid.getNumberOfMines()).putInt(mineLayout ? MINE_LAYOUT : 0).putLong(grid.getSeed());
+        if (mineLayout) {
+            journal.putMineLayout(grid.getCells());
+        }
+        journal.flush();
+        return journal;
+    }
+
+    /**
+     * Write the mines of the grid, one bit per cell, the cell index modulo 8 being the bit of the byte
+     */
+    private void putMineLayout(byte[] cells) throws IOException {
+        for (int byteIndex = 0, layoutSize = (cells.length + 7) >>> 3; byteIndex < layoutSize; byteIndex++) {
+            int index = byteIndex << 3;
+            if (!buffer.hasRemaining()) {
+                writeBuffer();
+            }
+            int bits = 0;
+            for (int bit = 0; bit < 8 && bit < cells.length - index; bit++) {
+                bits |= ((cells[index + bit] & Grid.MINE) >>> 4) << bit;
+            }
+            buffer.put((byte) bits);
+        }
+    }
+
+    @Override
+    public void onMove(int index, MoveResult result, int revealedCells) {
+        append(REVEAL, index);
+    }
+
+    @Override
+    public void onFlagChanged(int index, boolean flagged) {
+        append(FLAG, index);
+    }
+
+    @Override
+    public void onChord(int index, MoveResult result, int revealedCells) {
+        append(CHORD, index);
+    }
+
+    @Override
+    public void onUndo() {
+        append(UNDO, 0);
+    }
+
+    @Override
+    public void onRedo() {
+        append(REDO, 0);
+    }
+
+    @Override
+    public void onStatusChanged(GameStatus status) {
+        try {
+            flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void append(byte type, int index) {
+        if (buffer.remaining() < RECORD_SIZE) {
+            try {
+                writeBuffer();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        buffer.put(type).putInt(index);
+        moveNumber++;
+    }
+
+    /**
+     * Write the buffered moves to the file
+     *
+     * @throws IOException if the file can't be written
+     */
+    public void flush() throws IOException {
+        writeBuffer();
+    }
+
+    /**
+     * Write the buffered moves and force them to the storage device, to survive a crash of the system
+     *
+     * @throws IOException if the file can't be written
+     */
+    public void sync() throws IOException {
+        writeBuffer();
+        channel.force(false);
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            writeBuffer();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * @return the number of moves recorded
+     */
+    public long getMoveNumber() {
+        return moveNumber;
+    }
+
+    /**
+     * Play again all the moves of a journal
+     *
+     * @param path the journal file
+     * @return the engine of the game in the state after the last move
+     * @throws IOException if the file can't be read or is not a journal
+     */
+    public static GameEngine replay(Path path) throws IOException {
+        return replay(path, Long.MAX_VALUE);
+    }
+
+    /**
+     * Play again the first moves of a journal
+     *
+     * @param path       the journal file
+     * @param moveNumber the number of moves to play, the whole journal is played if it holds fewer moves
+     * @return the engine of the game in the state after the last move played
+     * @throws IOException if the file can't be read or is not a journal
+     */
+    public static GameEngine replay(Path path, long moveNumber) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Not a move journal");
+            }
+            // Replaying is bounded by the moves, not by reading, so the whole file is mapped at once
+            MappedByteBuffer journal = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            journal.order(ByteOrder.LITTLE_ENDIAN);
+            if (journal.getInt() != MAGIC) {
+                throw new IOException("Not a move journal");
+            }
+            int version = journal.getInt();
+            if (version < FIRST_VERSION || version > VERSION) {
+                throw new IOException("Unsupported journal version " + version);
+            }
+            int gridWidth = journal.getInt();
+            int gridHeight = journal.getInt();
+            int numberOfMines = journal.getInt();
+            int flagsField = journal.getInt();
+            // The field is reserved before the header flags
+            int flags = version >= MINE_LAYOUT_VERSION ? flagsField : 0;
+            long seed = journal.getLong();
+            if (gridWidth <= 0 || gridHeight <= 0 || (long) gridWidth * gridHeight > Integer.MAX_VALUE) {
+                throw new IOException("Wrong grid dimensions");
+            }
+            GameEngine gameEngine;
+            if ((flags & MINE_LAYOUT) != 0) {
+                gameEngine = new GameEngine(getMineLayout(journal, gridWidth, gridHeight, numberOfMines, seed));
+            } else {
+                gameEngine = GameEngine.newGame(gridWidth, gridHeight, numberOfMines, seed);
+            }
+            // The history costs memory for each move, so it is only kept when the journal holds undo records
+            if (version >= UNDO_VERSION) {
+                for (int position = journal.position(); position + RECORD_SIZE <= journal.limit();
+                     position += RECORD_SIZE) {
+                    if (journal.get(position) == UNDO) {
+                        gameEngine.enableHistory();
+                        break;
+                    }
+                }
+            }
+
+            for (long move = 0; move < moveNumber && journal.remaining() >= RECORD_SIZE; move++) {
+                byte type = journal.get();
+                int index = journal.getInt();
+                if (index < 0 || index >= (long) gridWidth * gridHeight) {
+                    throw new IOException("Wrong cell index " + index + " in move " + move);
+                }
+                if (type == UNDO && version >= UNDO_VERSION) {
+                    gameEngine.undo();
+                } else if (type == REDO && version >= UNDO_VERSION) {
+                    gameEngine.redo();
+                } else if (type == REVEAL) {
+                    gameEngine.reveal(index % gridWidth, index / gridWidth);
+                } else if (type == FLAG) {
+                    gameEngine.flag(index % gridWidth, index / gridWidth);
+                } else if (type == CHORD) {
+                    gameEngine.chord(index % gridWidth, index / gridWidth);
+                } else {
+                    throw new IOException("Unknown move type " + type + " in move " + move);
+                }
+            }
+            return gameEngine;
+        }
+    }
+
+    /**
+     * Build the grid from the mine layout following the header
+     */
+    private static Grid getMineLayout(ByteBuffer journal, int gridWidth, int gridHeight, int numberOfMines,
+                                      long seed) throws IOException {
+        int cellNumber = gridWidth * gridHeight;
+        int layoutSize = (cellNumber + 7) >>> 3;
+        if (journal.remaining() < layoutSize) {
+            throw new IOException("Truncated mine layout");
+        }
+        Grid grid = new Grid(gridWidth, gridHeight, numberOfMines, seed);
+        byte[] cells = grid.getCells();
+        int mines = 0;
+        for (int byteIndex = 0; byteIndex < layoutSize; byteIndex++) {
+            int index = byteIndex << 3;
+            int bits = journal.get() & 0xFF;
+            mines += Integer.bitCount(bits);
+            for (int bit = 0; bit < 8 && bit < cellNumber - index; bit++) {
+                cells[index + bit] = (byte) (((bits >>> bit) & 1) << 4);
+            }
+        }
+        if (mines != numberOfMines) {
+            throw new IOException("Wrong mine layout, " + mines + " mines instead of " + numberOfMines);
+        }
+        grid.calculateMineAroundNumber();
+        return grid;
+    }
+}
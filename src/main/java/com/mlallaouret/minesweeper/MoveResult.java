@@ -0,0 +1,31 @@
+package com.mlallaouret.minesweeper;
+
+/**
+ * Outcome of a player move
+ */
+public enum MoveResult {
+    /**
+     * Nothing changed: the cell was already revealed or flagged, the chord was not possible or the game is over
+     */
+    IGNORED,
+    /**
+     * Cells without mine were revealed and the game goes on
+     */
+    REVEALED,
+    /**
+     * A mine was revealed, the game is lost
+     */
+    EXPLODED,
+    /**
+     * The last cells without mine were revealed, the game is won
+     */
+    WON,
+    /**
+     * A flag was put on a hidden cell
+     */
+    FLAGGED,
+    /**
+     * A flag was removed from a hidden cell
+     */
+    UNFLAGGED
+}
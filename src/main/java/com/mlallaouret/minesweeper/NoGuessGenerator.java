@@ -0,0 +1,266 @@
+package com.mlallaouret.minesweeper;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Generate grids which the {@link Solver} can solve from the first click without any guess.
+ * <p>
+ * Candidate grids are drawn from seeds and played by the solver. When the solver gets stuck, the candidate is
+ * repaired a few times before being dropped: a mine next to the stuck frontier is swapped with a free cell away from
+ * it, which changes the numbers the solver was missing, and the candidate is solved again.
+ * The parallel generation runs one worker per thread on its own candidates; the first valid grid wins and the other
+ * workers stop at their next attempt.
+ * <p>
+ * The grids keep the seed of their candidate, but their mines are not the ones {@link Grid#placeMines()} puts from
+ * it, see {@link Grid#isSeedReproducible()}: a {@link MoveJournal} of their game records the mines themselves.
+ */
+public class NoGuessGenerator {
+    private static final int DEFAULT_MAX_REPAIRS = 16;
+    private static final long DEFAULT_MAX_ATTEMPTS = 1000000;
+
+    private final int gridWidth;
+    private final int gridHeight;
+    private final int numberOfMines;
+    private int maxRepairs = DEFAULT_MAX_REPAIRS;
+    private long maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+    public NoGuessGenerator(int gridWidth, int gridHeight, int numberOfMines) {
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        this.numberOfMines = numberOfMines;
+    }
+
+    /**
+     * Generate a grid in the calling thread, the same seed always gives the same grid
+     *
+     * @param firstWidth  the width coordinate of the first click
+     * @param firstHeight the height coordinate of the first click
+     * @param seed        the seed of the candidates
+     * @return a grid with its mines and mine around numbers, solvable without guess from the first click
+     * @throws IllegalStateException if no valid grid was found in the maximum number of attempts
+     */
+    public Grid generate(int firstWidth, int firstHeight, long seed) {
+        Grid grid = new Worker(new SplittableRandom(seed), new AtomicBoolean()).search(firstHeight, firstWidth,
+                maxAttempts);
+        if (grid == null) {
+            throw new IllegalStateException("No grid without guess found");
+        }
+        return grid;
+    }
+
+    /**
+     * Generate a grid trying candidates in parallel
+     *
+     * @param firstWidth  the width coordinate of the first click
+     * @param firstHeight the height coordinate of the first click
+     * @param seed        the seed the candidates of every worker are split from
+     * @param executor    the executor running the workers
+     * @param parallelism the number of workers
+     * @return a grid with its mines and mine around numbers, solvable without guess from the first click
+     * @throws IllegalStateException if no valid grid was found in the maximum number of attempts
+     */
+    public Grid generate(final int firstWidth, final int firstHeight, long seed, ExecutorService executor,
+                         int parallelism) {
+        final CompletableFuture<Grid> result = new CompletableFuture<Grid>();
+        final AtomicBoolean stopped = new AtomicBoolean();
+        final List<Future<?>> workers = new ArrayList<Future<?>>();
+        final long workerAttempts = maxAttempts / parallelism + 1;
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < parallelism; i++) {
+            final Worker worker = new Worker(random.split(), stopped);
+            workers.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Grid grid = worker.search(firstHeight, firstWidth, workerAttempts);
+                        if (grid != null) {
+                            result.complete(grid);
+                        }
+                    } catch (RuntimeException e) {
+                        result.completeExceptionally(e);
+                    }
+                }
+            }));
+        }
+        // Complete with null once every worker gave up
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (Future<?> worker : workers) {
+                    try {
+                        worker.get();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    } catch (Exception e) {
+                        // Reported by the worker itself
+                    }
+                }
+                result.complete(null);
+            }
+        });
+
+        try {
+            Grid grid = result.get();
+            if (grid == null) {
+                throw new IllegalStateException("No grid without guess found");
+            }
+            return grid;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Generation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Generation failed", e.getCause());
+        } finally {
+            stopped.set(true);
+        }
+    }
+
+    public void setMaxRepairs(int maxRepairs) {
+        this.maxRepairs = maxRepairs;
+    }
+
+    public void setMaxAttempts(long maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Tries candidates one after the other with its own grid and solver
+     */
+    private final class Worker {
+        private final SplittableRandom random;
+        private final AtomicBoolean stopped;
+        private final Grid grid = new Grid(gridWidth, gridHeight, numberOfMines);
+        private final Solver solver = new Solver(grid);
+        private final int[] neighbours = new int[Grid.NEIGHBOUR_NUMBER];
+        private final BitSet stuckCells = new BitSet();
+        private final BitSet freeCells = new BitSet();
+
+        Worker(SplittableRandom random, AtomicBoolean stopped) {
+            this.random = random;
+            this.stopped = stopped;
+        }
+
+        /**
+         * @return a valid grid, or null if none was found or the search was stopped
+         */
+        Grid search(int firstHeight, int firstWidth, long attempts) {
+            for (long attempt = 0; attempt < attempts && !stopped.get(); attempt++) {
+                long seed = random.nextLong();
+                grid.reset(seed);
+                grid.placeMines(firstWidth, firstHeight);
+                for (int repair = 0; repair <= maxRepairs; repair++) {
+                    SolveResult result = play(firstHeight, firstWidth);
+                    if (result == SolveResult.SOLVED) {
+                        return copyMines(seed);
+                    }
+                    if (result != SolveResult.STUCK || !repair(firstHeight, firstWidth)) {
+                        break;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private SolveResult play(int firstHeight, int firstWidth) {
+            byte[] cells = grid.getCells();
+            for (int index = 0; index < cells.length; index++) {
+                cells[index] &= Grid.MINE;
+            }
+            grid.setRemainingEmptyCell(cells.length - numberOfMines);
+            grid.calculateMineAroundNumber();
+            solver.reset();
+            solver.reveal(firstWidth, firstHeight);
+            return solver.solve();
+        }
+
+        /**
+         * Swap a mine next to the stuck frontier with a free cell away from it, or a free cell next to the frontier
+         * with a mine away from it when no mine is next to the frontier
+         *
+         * @return false if no swap is possible
+         */
+        private boolean repair(int firstHeight, int firstWidth) {
+            byte[] cells = grid.getCells();
+            stuckCells.clear();
+            freeCells.clear();
+            BitSet frontier = solver.getFrontier();
+            for (int index = frontier.nextSetBit(0); index >= 0; index = frontier.nextSetBit(index + 1)) {
+                int neighbourNumber = grid.getNeighbourIndexes(index, neighbours);
+                for (int i = 0; i < neighbourNumber; i++) {
+                    int neighbour = neighbours[i];
+                    if ((cells[neighbour] & Grid.REVEALED) == 0 && !solver.isKnownMine(neighbour)) {
+                        stuckCells.set(neighbour);
+                    }
+                }
+            }
+            for (int index = 0; index < cells.length; index++) {
+                if ((cells[index] & Grid.REVEALED) == 0 && !stuckCells.get(index) && !solver.isKnownMine(index)
+                        && !isNextTo(index, firstHeight, firstWidth)) {
+                    freeCells.set(index);
+                }
+            }
+
+            int stuckMine = pickCell(stuckCells, true);
+            int swapped = stuckMine >= 0 ? pickCell(freeCells, false) : pickCell(freeCells, true);
+            int stuckCell = stuckMine >= 0 ? stuckMine : pickCell(stuckCells, false);
+            if (stuckCell < 0 || swapped < 0) {
+                return false;
+            }
+            cells[stuckCell] ^= Grid.MINE;
+            cells[swapped] ^= Grid.MINE;
+            return true;
+        }
+
+        /**
+         * Pick at random a cell of the set holding a mine or not
+         *
+         * @return the index of the cell, -1 if there is none
+         */
+        private int pickCell(BitSet candidates, boolean mine) {
+            byte[] cells = grid.getCells();
+            int count = 0;
+            for (int index = candidates.nextSetBit(0); index >= 0; index = candidates.nextSetBit(index + 1)) {
+                if (((cells[index] & Grid.MINE) != 0) == mine) {
+                    count++;
+                }
+            }
+            if (count == 0) {
+                return -1;
+            }
+            int picked = random.nextInt(count);
+            for (int index = candidates.nextSetBit(0); index >= 0; index = candidates.nextSetBit(index + 1)) {
+                if (((cells[index] & Grid.MINE) != 0) == mine && picked-- == 0) {
+                    return index;
+                }
+            }
+            return -1;
+        }
+
+        private boolean isNextTo(int index, int height, int width) {
+            return Math.abs(grid.heightOf(index) - height) <= 1 && Math.abs(grid.widthOf(index) - width) <= 1;
+        }
+
+        /**
+         * Build the grid given to the player: the mines of the candidate, nothing revealed
+         */
+        private Grid copyMines(long seed) {
+            Grid validGrid = new Grid(gridWidth, gridHeight, numberOfMines, seed);
+            byte[] cells = grid.getCells();
+            byte[] validCells = validGrid.getCells();
+            for (int index = 0; index < cells.length; index++) {
+                validCells[index] = (byte) (cells[index] & Grid.MINE);
+            }
+            validGrid.calculateMineAroundNumber();
+            return validGrid;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.mlallaouret.minesweeper;
+
+/**
+ * The cells revealed by the last reveal or chord of a game, with their values.
+ * <p>
+ * The delta is a view over the reveal queue of the grid, so producing it costs nothing and reading it costs the
+ * number of cells revealed, whatever the size of the grid. A revealed cell never changes afterwards, so the values
+ * stay right until the next reveal or chord reuses the queue.
+ */
+public final class RevealDelta {
+    private final Grid grid;
+    private int size;
+
+    RevealDelta(Grid grid) {
+        this.grid = grid;
+    }
+
+    void setSize(int size) {
+        this.size = size;
+    }
+
+    /**
+     * @return the number of cells revealed
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param i the position of the cell in the delta, in the order the cells were revealed
+     * @return the index of the cell in the grid (height * gridWidth + width)
+     */
+    public int getIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("No revealed cell " + i + " in a delta of " + size);
+        }
+        return grid.getRevealQueue()[i];
+    }
+
+    /**
+     * @param i the position of the cell in the delta
+     * @return true if the cell holds a mine
+     */
+    public boolean isMine(int i) {
+        return (grid.getCells()[getIndex(i)] & Grid.MINE) != 0;
+    }
+
+    /**
+     * @param i the position of the cell in the delta
+     * @return the number of mines around the cell
+     */
+    public int getMineAroundNumber(int i) {
+        return grid.getCells()[getIndex(i)] & Grid.MINE_AROUND_MASK;
+    }
+
+    public Grid getGrid() {
+        return grid;
+    }
+}
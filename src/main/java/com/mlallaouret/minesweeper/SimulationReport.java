@@ -0,0 +1,56 @@
+package com.mlallaouret.minesweeper;
+
+/**
+ * Results of a batch of games played by the {@link Simulator}
+ */
+public class SimulationReport {
+
+    private final long games;
+    private final long wins;
+    private final long guesses;
+    private final long elapsedNanos;
+
+    public SimulationReport(long games, long wins, long guesses, long elapsedNanos) {
+        this.games = games;
+        this.wins = wins;
+        this.guesses = guesses;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public double getWinRate() {
+        return games == 0 ? 0 : (double) wins / games;
+    }
+
+    public double getAverageGuesses() {
+        return games == 0 ? 0 : (double) guesses / games;
+    }
+
+    /**
+     * @return the wall clock time of the batch divided by the number of games
+     */
+    public double getNanosPerGame() {
+        return games == 0 ? 0 : (double) elapsedNanos / games;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public long getWins() {
+        return wins;
+    }
+
+    public long getGuesses() {
+        return guesses;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d games, win rate %.4f, %.3f guesses per game, %.1f us per game",
+                games, getWinRate(), getAverageGuesses(), getNanosPerGame() / 1000);
+    }
+}
@@ -0,0 +1,124 @@
+package com.mlallaouret.minesweeper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Play many games with the {@link Solver} to measure the win rate of a grid configuration.
+ * <p>
+ * The first click is in the middle of the grid and is kept free of mines with its neighbours. When the solver is
+ * stuck, the hidden cell the least likely to hold a mine is played and counted as a guess.
+ * Each worker thread owns its grid, solver and random generator, split from the simulation seed, and reuses them for
+ * all its games: the workers share nothing until their counts are summed at the end.
+ */
+public class Simulator {
+
+    private final int gridWidth;
+    private final int gridHeight;
+    private final int numberOfMines;
+
+    public Simulator(int gridWidth, int gridHeight, int numberOfMines) {
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        this.numberOfMines = numberOfMines;
+    }
+
+    /**
+     * Play the games on all the processors
+     *
+     * @param games the number of games to play
+     * @param seed  the seed of the simulation, the same seed and number of threads give the same report counts
+     * @return the results of the games
+     */
+    public SimulationReport run(long games, long seed) {
+        return run(games, seed, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Play the games
+     *
+     * @param games        the number of games to play
+     * @param seed         the seed of the simulation, the same seed and number of threads give the same report counts
+     * @param threadNumber the number of worker threads
+     * @return the results of the games
+     */
+    public SimulationReport run(long games, long seed, int threadNumber) {
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threadNumber);
+        try {
+            SplittableRandom random = new SplittableRandom(seed);
+            List<Future<long[]>> results = new ArrayList<Future<long[]>>();
+            for (int i = 0; i < threadNumber; i++) {
+                final long workerGames = games / threadNumber + (i < games % threadNumber ? 1 : 0);
+                final SplittableRandom workerRandom = random.split();
+                results.add(executor.submit(new Callable<long[]>() {
+                    @Override
+                    public long[] call() {
+                        return new Worker(workerRandom).play(workerGames);
+                    }
+                }));
+            }
+            long wins = 0;
+            long guesses = 0;
+            for (Future<long[]> result : results) {
+                wins += result.get()[0];
+                guesses += result.get()[1];
+            }
+            return new SimulationReport(games, wins, guesses, System.nanoTime() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Simulation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Simulation failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Plays games one after the other on the same grid
+     */
+    private final class Worker {
+        private final SplittableRandom random;
+        private final Grid grid = new Grid(gridWidth, gridHeight, numberOfMines);
+        private final Solver solver = new Solver(grid);
+        private final MineProbability mineProbability = new MineProbability();
+
+        Worker(SplittableRandom random) {
+            this.random = random;
+        }
+
+        /**
+         * @return the number of wins and the number of guesses
+         */
+        long[] play(long games) {
+            long wins = 0;
+            long guesses = 0;
+            int firstHeight = gridHeight / 2;
+            int firstWidth = gridWidth / 2;
+            for (long game = 0; game < games; game++) {
+                grid.reset(random.nextLong());
+                grid.placeMines(firstWidth, firstHeight);
+                grid.calculateMineAroundNumber();
+                solver.reset();
+                solver.reveal(firstWidth, firstHeight);
+                SolveResult result;
+                while ((result = solver.solve()) == SolveResult.STUCK) {
+                    int guess = mineProbability.findSafestCell(solver);
+                    guesses++;
+                    solver.reveal(grid.widthOf(guess), grid.heightOf(guess));
+                }
+                if (result == SolveResult.SOLVED) {
+                    wins++;
+                }
+            }
+            return new long[]{wins, guesses};
+        }
+    }
+}
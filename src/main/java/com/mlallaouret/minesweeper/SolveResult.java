@@ -0,0 +1,19 @@
+package com.mlallaouret.minesweeper;
+
+/**
+ * Outcome of a {@link Solver} run
+ */
+public enum SolveResult {
+    /**
+     * Every cell without mine is revealed
+     */
+    SOLVED,
+    /**
+     * No more cell can be deduced, the next move needs a guess
+     */
+    STUCK,
+    /**
+     * A mine was revealed, only possible if a revealed cell was a guess
+     */
+    EXPLODED
+}
@@ -0,0 +1,327 @@
+package com.mlallaouret.minesweeper;
+
+import java.util.BitSet;
+
+/**
+ * Play a grid as far as possible without guessing.
+ * <p>
+ * The solver only looks at what a player sees: the revealed cells and their mine around numbers. It keeps the
+ * frontier, the revealed numbers next to hidden cells, and the mines it deduced in bitsets indexed like the grid.
+ * Two rules are applied:
+ * <ul>
+ * <li>single cell: when the mines left around a number are 0, its hidden neighbours are safe, when they are as many
+ * as its hidden neighbours, they are all mines;</li>
+ * <li>pair: for two numbers a and b close enough to share hidden neighbours, if the mines left around b minus the
+ * mines left around a equals the number of hidden cells only next to b, those are mines and the hidden cells only
+ * next to a are safe. This includes the subset rule.</li>
+ * </ul>
+ * Only the cells whose neighbourhood changed since they were last examined are examined again, so each reveal costs
+ * work proportional to the cells it changed, not to the grid.
+ */
+public class Solver {
+    private static final int WINDOW_SIZE = 7;
+    private static final int WINDOW_CENTER = 3;
+    private static final int PAIR_DISTANCE = 2;
+
+    private final Grid grid;
+    private final int gridWidth;
+    private final int gridHeight;
+    private final BitSet knownMines = new BitSet();
+    private final BitSet frontier = new BitSet();
+    private final BitSet singleRuleCells = new BitSet();
+    private final BitSet pairRuleCells = new BitSet();
+    private final int[] neighbours = new int[Grid.NEIGHBOUR_NUMBER];
+    private final int[] revealNeighbours = new int[Grid.NEIGHBOUR_NUMBER];
+    private final int[] maskNeighbours = new int[Grid.NEIGHBOUR_NUMBER];
+    private int maskRemainingMines;
+    private long deductions;
+    private boolean exploded;
+
+    /**
+     * @param grid the grid to play, its already revealed cells are taken into account
+     */
+    public Solver(Grid grid) {
+        this.grid = grid;
+        this.gridWidth = grid.getGridWidth();
+        this.gridHeight = grid.getGridHeight();
+        scanRevealedCells();
+    }
+
+    /**
+     * Forget everything deduced, to solve the grid again after it has been reset
+     */
+    void reset() {
+        knownMines.clear();
+        frontier.clear();
+        singleRuleCells.clear();
+        pairRuleCells.clear();
+        deductions = 0;
+        exploded = false;
+        scanRevealedCells();
+    }
+
+    private void scanRevealedCells() {
+        byte[] cells = grid.getCells();
+        for (int index = 0; index < cells.length; index++) {
+            if ((cells[index] & Grid.REVEALED) != 0) {
+                if ((cells[index] & Grid.MINE) != 0) {
+                    exploded = true;
+                }
+                markChanged(index);
+            }
+        }
+    }
+
+    /**
+     * Reveal a cell chosen by the caller, the first click or a guess, and update the frontier
+     *
+     * @param width  the width coordinate of the cell to reveal
+     * @param height the height coordinate of the cell to reveal
+     * @return the number of cells revealed
+     */
+    public int reveal(int width, int height) {
+        int revealed = grid.revealCells(width, height);
+        onRevealed(revealed);
+        return revealed;
+    }
+
+    /**
+     * Apply the rules until the grid is solved or nothing more can be deduced
+     *
+     * @return the state of the grid when the solver stops
+     */
+    public SolveResult solve() {
+        while (!exploded && grid.getRemainingEmptyCell() > 0) {
+            if (applySingleRules()) {
+                continue;
+            }
+            if (!applyPairRules()) {
+                break;
+            }
+        }
+        if (exploded) {
+            return SolveResult.EXPLODED;
+        }
+        return grid.getRemainingEmptyCell() == 0 ? SolveResult.SOLVED : SolveResult.STUCK;
+    }
+
+    private boolean applySingleRules() {
+        boolean progress = false;
+        while (!singleRuleCells.isEmpty() && !exploded) {
+            for (int index = singleRuleCells.nextSetBit(0); index >= 0 && !exploded;
+                 index = singleRuleCells.nextSetBit(index + 1)) {
+                singleRuleCells.clear(index);
+                progress |= applySingleRule(index);
+            }
+        }
+        return progress;
+    }
+
+    private boolean applySingleRule(int index) {
+        byte[] cells = grid.getCells();
+        int neighbourNumber = grid.getNeighbourIndexes(index, neighbours);
+        int hiddenCells = 0;
+        int mines = 0;
+        for (int i = 0; i < neighbourNumber; i++) {
+            int neighbour = neighbours[i];
+            if (knownMines.get(neighbour)) {
+                mines++;
+            } else if ((cells[neighbour] & Grid.REVEALED) == 0) {
+                hiddenCells++;
+            }
+        }
+        if (hiddenCells == 0) {
+            frontier.clear(index);
+            return false;
+        }
+        int remainingMines = (cells[index] & Grid.MINE_AROUND_MASK) - mines;
+        if (remainingMines != 0 && remainingMines != hiddenCells) {
+            return false;
+        }
+        for (int i = 0; i < neighbourNumber; i++) {
+            int neighbour = neighbours[i];
+            if (!knownMines.get(neighbour) && (cells[neighbour] & Grid.REVEALED) == 0) {
+                if (remainingMines == 0) {
+                    revealSafeCell(neighbour);
+                } else {
+                    setMine(neighbour);
+                }
+            }
+        }
+        frontier.clear(index);
+        return true;
+    }
+
+    private boolean applyPairRules() {
+        for (int index = pairRuleCells.nextSetBit(0); index >= 0; index = pairRuleCells.nextSetBit(index + 1)) {
+            pairRuleCells.clear(index);
+            if (frontier.get(index) && applyPairRule(index)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean applyPairRule(int a) {
+        int heightA = a / gridWidth;
+        int widthA = a - heightA * gridWidth;
+        long hiddenA = hiddenMask(a, heightA, widthA);
+        int remainingA = maskRemainingMines;
+        int minHeight = Math.max(heightA - PAIR_DISTANCE, 0);
+        int maxHeight = Math.min(heightA + PAIR_DISTANCE, gridHeight - 1);
+        int minWidth = Math.max(widthA - PAIR_DISTANCE, 0);
+        int maxWidth = Math.min(widthA + PAIR_DISTANCE, gridWidth - 1);
+        for (int i = minHeight; i <= maxHeight; i++) {
+            for (int j = minWidth; j <= maxWidth; j++) {
+                int b = i * gridWidth + j;
+                if (b == a || !frontier.get(b)) {
+                    continue;
+                }
+                long hiddenB = hiddenMask(b, heightA, widthA);
+                int remainingB = maskRemainingMines;
+                if ((hiddenA & hiddenB) == 0) {
+                    continue;
+                }
+                long onlyA = hiddenA & ~hiddenB;
+                long onlyB = hiddenB & ~hiddenA;
+                if ((onlyA | onlyB) == 0) {
+                    continue;
+                }
+                if (remainingB - remainingA == Long.bitCount(onlyB)) {
+                    applyMask(onlyB, onlyA, heightA, widthA);
+                    return true;
+                }
+                if (remainingA - remainingB == Long.bitCount(onlyA)) {
+                    applyMask(onlyA, onlyB, heightA, widthA);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Build the mask of the hidden, not deduced, neighbours of a cell in the 7 x 7 window centered on another cell,
+     * the number of mines left around the cell is stored in maskRemainingMines
+     */
+    private long hiddenMask(int index, int centerHeight, int centerWidth) {
+        byte[] cells = grid.getCells();
+        int neighbourNumber = grid.getNeighbourIndexes(index, maskNeighbours);
+        long mask = 0;
+        int mines = 0;
+        for (int i = 0; i < neighbourNumber; i++) {
+            int neighbour = maskNeighbours[i];
+            if (knownMines.get(neighbour)) {
+                mines++;
+            } else if ((cells[neighbour] & Grid.REVEALED) == 0) {
+                int height = neighbour / gridWidth;
+                int width = neighbour - height * gridWidth;
+                mask |= 1L << ((height - centerHeight + WINDOW_CENTER) * WINDOW_SIZE
+                        + width - centerWidth + WINDOW_CENTER);
+            }
+        }
+        maskRemainingMines = (cells[index] & Grid.MINE_AROUND_MASK) - mines;
+        return mask;
+    }
+
+    private void applyMask(long mines, long safeCells, int centerHeight, int centerWidth) {
+        for (long bits = mines; bits != 0; bits &= bits - 1) {
+            setMine(windowIndex(Long.numberOfTrailingZeros(bits), centerHeight, centerWidth));
+        }
+        for (long bits = safeCells; bits != 0; bits &= bits - 1) {
+            revealSafeCell(windowIndex(Long.numberOfTrailingZeros(bits), centerHeight, centerWidth));
+        }
+    }
+
+    private int windowIndex(int position, int centerHeight, int centerWidth) {
+        int height = centerHeight + position / WINDOW_SIZE - WINDOW_CENTER;
+        int width = centerWidth + position % WINDOW_SIZE - WINDOW_CENTER;
+        return height * gridWidth + width;
+    }
+
+    private void revealSafeCell(int index) {
+        if ((grid.getCells()[index] & Grid.REVEALED) != 0) {
+            return;
+        }
+        deductions++;
+        int height = index / gridWidth;
+        onRevealed(grid.revealCells(index - height * gridWidth, height));
+    }
+
+    private void setMine(int index) {
+        if (knownMines.get(index)) {
+            return;
+        }
+        deductions++;
+        knownMines.set(index);
+        markNeighboursChanged(index);
+    }
+
+    /**
+     * Take into account the cells revealed by the last flood fill of the grid
+     */
+    private void onRevealed(int revealed) {
+        int[] revealQueue = grid.getRevealQueue();
+        byte[] cells = grid.getCells();
+        for (int i = 0; i < revealed; i++) {
+            int index = revealQueue[i];
+            if ((cells[index] & Grid.MINE) != 0) {
+                exploded = true;
+            }
+            markChanged(index);
+            markNeighboursChanged(index);
+        }
+    }
+
+    private void markNeighboursChanged(int index) {
+        int neighbourNumber = grid.getNeighbourIndexes(index, revealNeighbours);
+        for (int i = 0; i < neighbourNumber; i++) {
+            markChanged(revealNeighbours[i]);
+        }
+    }
+
+    /**
+     * Schedule a revealed number for the rules, a cell without number can't be part of the frontier
+     */
+    private void markChanged(int index) {
+        int value = grid.getCells()[index];
+        if ((value & Grid.REVEALED) != 0 && (value & Grid.MINE) == 0 && (value & Grid.MINE_AROUND_MASK) != 0) {
+            frontier.set(index);
+            singleRuleCells.set(index);
+            pairRuleCells.set(index);
+        }
+    }
+
+    /**
+     * @param index the index of a cell
+     * @return true if the solver deduced that the cell holds a mine
+     */
+    public boolean isKnownMine(int index) {
+        return knownMines.get(index);
+    }
+
+    /**
+     * @return the mines deduced so far, indexed like the grid, not to be modified
+     */
+    public BitSet getKnownMines() {
+        return knownMines;
+    }
+
+    /**
+     * @return the revealed numbers which may still have hidden neighbours, indexed like the grid, not to be modified
+     */
+    public BitSet getFrontier() {
+        return frontier;
+    }
+
+    /**
+     * @return the number of safe cells and mines deduced so far
+     */
+    public long getDeductions() {
+        return deductions;
+    }
+
+    public Grid getGrid() {
+        return grid;
+    }
+}
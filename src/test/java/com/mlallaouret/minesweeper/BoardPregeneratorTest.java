@@ -0,0 +1,110 @@
+package com.mlallaouret.minesweeper;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BoardPregeneratorTest {
+
+    private BoardPregenerator boardPregenerator;
+
+    @Before
+    public void setUp() {
+        boardPregenerator = new BoardPregenerator(1, 4, new GridPool(4, 4));
+    }
+
+    @After
+    public void tearDown() {
+        boardPregenerator.close();
+    }
+
+    @Test
+    public void testTakeNominal() throws InterruptedException {
+        boardPregenerator.addBoardSize(16, 16, 40);
+        awaitReadyBoards(16, 16, 4);
+
+        Grid grid = boardPregenerator.take(16, 16, 40);
+
+        assertBoard(grid, 16, 16, 40);
+        // The board taken is replaced in the background
+        awaitReadyBoards(16, 16, 4);
+    }
+
+    @Test
+    public void testTakeWithoutReadyBoard() {
+        Grid grid = boardPregenerator.take(8, 6, 10);
+
+        assertBoard(grid, 8, 6, 10);
+        Assert.assertEquals(0, boardPregenerator.getReadyBoardNumber(8, 6));
+    }
+
+    @Test
+    public void testTakeOtherMineNumber() throws InterruptedException {
+        boardPregenerator.addBoardSize(9, 9, 10);
+        awaitReadyBoards(9, 9, 4);
+
+        Grid grid = boardPregenerator.take(9, 9, 20);
+
+        assertBoard(grid, 9, 9, 20);
+        Assert.assertEquals(4, boardPregenerator.getReadyBoardNumber(9, 9));
+    }
+
+    @Test
+    public void testTakeAfterClose() throws InterruptedException {
+        boardPregenerator.addStandardDifficulties();
+        awaitReadyBoards(30, 16, 4);
+        boardPregenerator.close();
+
+        for (int i = 0; i < 5; i++) {
+            assertBoard(boardPregenerator.take(30, 16, 99), 30, 16, 99);
+        }
+        Assert.assertEquals(0, boardPregenerator.getReadyBoardNumber(30, 16));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddBoardSizeFailedOtherMineNumber() {
+        boardPregenerator.addBoardSize(9, 9, 10);
+        boardPregenerator.addBoardSize(9, 9, 20);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddBoardSizeFailedTooManyMines() {
+        boardPregenerator.addBoardSize(3, 3, 9);
+    }
+
+    private void awaitReadyBoards(int gridWidth, int gridHeight, int number) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (boardPregenerator.getReadyBoardNumber(gridWidth, gridHeight) < number) {
+            Assert.assertTrue("Boards not generated in time", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private static void assertBoard(Grid grid, int gridWidth, int gridHeight, int numberOfMines) {
+        Assert.assertEquals(gridWidth, grid.getGridWidth());
+        Assert.assertEquals(gridHeight, grid.getGridHeight());
+        Assert.assertEquals(numberOfMines, grid.getNumberOfMines());
+        Assert.assertEquals(gridWidth * gridHeight - numberOfMines, grid.getRemainingEmptyCell());
+        int mines = 0;
+        for (int height = 0; height < gridHeight; height++) {
+            for (int width = 0; width < gridWidth; width++) {
+                Assert.assertFalse(grid.isRevealed(width, height));
+                if (grid.isMineInCell(width, height)) {
+                    mines++;
+                    continue;
+                }
+                int minesAround = 0;
+                for (int i = Math.max(height - 1, 0); i <= Math.min(height + 1, gridHeight - 1); i++) {
+                    for (int j = Math.max(width - 1, 0); j <= Math.min(width + 1, gridWidth - 1); j++) {
+                        if (grid.isMineInCell(j, i)) {
+                            minesAround++;
+                        }
+                    }
+                }
+                Assert.assertEquals(minesAround, grid.getMineAroundNumber(width, height));
+            }
+        }
+        Assert.assertEquals(numberOfMines, mines);
+    }
+}
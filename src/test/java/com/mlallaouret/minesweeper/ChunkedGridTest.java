@@ -0,0 +1,76 @@
+package com.mlallaouret.minesweeper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ChunkedGridTest {
+
+    @Test
+    public void testMinesDoNotDependOnExplorationOrder() {
+        ChunkedGrid firstGrid = new ChunkedGrid(1000, 1000, 600, 12L);
+        ChunkedGrid secondGrid = new ChunkedGrid(1000, 1000, 600, 12L);
+
+        secondGrid.isMineInCell(999, 999);
+        for (int i = 100; i < 300; i++) {
+            for (int j = 100; j < 300; j++) {
+                Assert.assertEquals(firstGrid.isMineInCell(j, i), secondGrid.isMineInCell(j, i));
+            }
+        }
+    }
+
+    @Test
+    public void testMineAroundNumberAcrossChunks() {
+        ChunkedGrid chunkedGrid = new ChunkedGrid(200, 150, 800, 3L);
+
+        for (int i = 0; i < 150; i++) {
+            for (int j = 0; j < 200; j++) {
+                int count = 0;
+                for (int k = Math.max(i - 1, 0); k <= Math.min(i + 1, 149); k++) {
+                    for (int l = Math.max(j - 1, 0); l <= Math.min(j + 1, 199); l++) {
+                        if ((k != i || l != j) && chunkedGrid.isMineInCell(l, k)) {
+                            count++;
+                        }
+                    }
+                }
+                Assert.assertEquals(count, chunkedGrid.getMineAroundNumber(j, i));
+            }
+        }
+    }
+
+    @Test
+    public void testNumberOfMines() {
+        ChunkedGrid chunkedGrid = new ChunkedGrid(100, 70, 400, 5L);
+
+        long mineCount = 0;
+        for (int i = 0; i < 70; i++) {
+            for (int j = 0; j < 100; j++) {
+                if (chunkedGrid.isMineInCell(j, i)) {
+                    mineCount++;
+                }
+            }
+        }
+
+        Assert.assertEquals(mineCount, chunkedGrid.getNumberOfMines());
+    }
+
+    @Test
+    public void testHugeGridOnlyCreatesTouchedChunks() {
+        ChunkedGrid chunkedGrid = new ChunkedGrid(Integer.MAX_VALUE, Integer.MAX_VALUE, 800, 9L);
+
+        chunkedGrid.revealCells(1000032, 1000032);
+
+        Assert.assertTrue(chunkedGrid.isRevealed(1000032, 1000032));
+        Assert.assertTrue(chunkedGrid.getChunkNumber() < 100);
+    }
+
+    @Test
+    public void testRevealOpenArea() {
+        ChunkedGrid chunkedGrid = new ChunkedGrid(500, 300, 0, 1L);
+
+        long revealed = chunkedGrid.revealCells(250, 150);
+
+        Assert.assertEquals(500 * 300, revealed);
+        Assert.assertEquals(0, chunkedGrid.getRemainingEmptyCell());
+        Assert.assertEquals(0, chunkedGrid.revealCells(0, 0));
+    }
+}
@@ -0,0 +1,138 @@
+package com.mlallaouret.minesweeper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+public class CommandStreamTest {
+
+    @Test
+    public void testRunNominal() throws IOException {
+        GameEngine expected = GameEngine.newGame(3, 3, 1, 42L);
+        int mineIndex = 0;
+        while (!expected.getGrid().isMineInCell(mineIndex % 3, mineIndex / 3)) {
+            mineIndex++;
+        }
+        int safeIndex = mineIndex == 4 ? 0 : 4;
+        String commands = "N 3 3 1 42\n"
+                + "S\n"
+                + "F " + mineIndex % 3 + " " + mineIndex / 3 + "\n"
+                + "R " + mineIndex % 3 + " " + mineIndex / 3 + "\n"
+                + "R " + safeIndex % 3 + " " + safeIndex / 3 + "\n"
+                + "C " + safeIndex % 3 + " " + safeIndex / 3 + "\n";
+
+        String answers = run(commands);
+
+        Assert.assertEquals("OK\nP 8\nF 0\nI 0\nR 1\nW 7\n", answers);
+    }
+
+    @Test
+    public void testRunErrors() throws IOException {
+        String answers = run("R 1 1\nN 3 3 1\nX\nR a 1\nR 1 1 1\nR 5 1\nN 3 3 9\n\n  \r\nS");
+
+        Assert.assertEquals("ERROR No game\nOK\nERROR Unknown command\nERROR Not a number\n"
+                + "ERROR Too many arguments\nERROR Wrong grid Coordinates\n"
+                + "ERROR Wrong grid dimensions or mine number\nP 8\n", answers);
+    }
+
+    @Test
+    public void testRunNumbersOutOfRange() throws IOException {
+        String answers = run("N 50000 50000 1\nN 4294967305 9 1\nN 9 9 10 7\nR 4294967296 0\nS\n");
+
+        Assert.assertEquals("ERROR Wrong grid dimensions or mine number\nERROR Not a number\nOK\n"
+                + "ERROR Not a number\nP 71\n", answers);
+    }
+
+    @Test
+    public void testRunSeedsOutOfRange() throws IOException {
+        String answers = run("N 9 9 10 9999999999999999999\nN 9 9 10 9223372036854775808\n"
+                + "N 9 9 10 -9223372036854775809\nN 9 9 10 9223372036854775807\nN 9 9 10 -9223372036854775808\n");
+
+        Assert.assertEquals("ERROR Not a number\nERROR Not a number\nERROR Not a number\nOK\nOK\n", answers);
+    }
+
+    @Test
+    public void testRunSeedLimits() throws IOException {
+        GameEngine expected = GameEngine.newGame(9, 9, 10, Long.MIN_VALUE);
+        MoveResult result = expected.reveal(4, 4);
+
+        String answers = run("N 9 9 10 -9223372036854775808\nR 4 4\nS\n");
+
+        Assert.assertEquals("OK\n" + result.name().charAt(0) + " " + expected.getLastRevealedCells() + "\n"
+                + expected.status().name().charAt(0) + " " + expected.getGrid().getRemainingEmptyCell() + "\n",
+                answers);
+    }
+
+    @Test
+    public void testRunLineTooLong() throws IOException {
+        StringBuilder commands = new StringBuilder();
+        for (int i = 0; i < 2 * CommandStream.BUFFER_SIZE; i++) {
+            commands.append('X');
+        }
+        // The end of the line too long looks like a command, it must be dropped with the rest of the line
+        commands.append("S\nN 9 9 10 7\nS\n");
+
+        String answers = run(commands.toString());
+
+        Assert.assertEquals("ERROR Line too long\nOK\nP 71\n", answers);
+    }
+
+    @Test
+    public void testRunLinesSplitBetweenReads() throws IOException {
+        final ByteArrayInputStream bytes = new ByteArrayInputStream(
+                "N 9 9 10 7\r\nS\r\nS\r\n".getBytes(StandardCharsets.US_ASCII));
+        // Give the input one byte at a time
+        ReadableByteChannel in = new ReadableByteChannel() {
+            @Override
+            public int read(ByteBuffer buffer) {
+                int b = bytes.read();
+                if (b < 0) {
+                    return -1;
+                }
+                buffer.put((byte) b);
+                return 1;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long commands = new CommandStream(in, Channels.newChannel(out)).run();
+
+        Assert.assertEquals(3, commands);
+        Assert.assertEquals("OK\nP 71\nP 71\n", out.toString("US-ASCII"));
+    }
+
+    @Test
+    public void testRunManyCommands() throws IOException {
+        StringBuilder commands = new StringBuilder("N 1000 1000 200000 3\n");
+        for (int i = 0; i < 100000; i++) {
+            commands.append("F ").append(i % 1000).append(' ').append(i / 1000).append('\n');
+        }
+
+        String answers = run(commands.toString());
+
+        Assert.assertEquals(3 + 100000 * 4, answers.length());
+    }
+
+    private static String run(String commands) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new CommandStream(Channels.newChannel(new ByteArrayInputStream(commands.getBytes(StandardCharsets.US_ASCII))),
+                Channels.newChannel(out)).run();
+        return out.toString("US-ASCII");
+    }
+}
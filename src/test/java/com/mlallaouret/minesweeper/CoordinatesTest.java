@@ -0,0 +1,27 @@
+package com.mlallaouret.minesweeper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CoordinatesTest {
+
+    @Test
+    public void testOfNominal() {
+        long coordinates = Coordinates.of(3, 7);
+
+        Assert.assertEquals(3, Coordinates.x(coordinates));
+        Assert.assertEquals(7, Coordinates.y(coordinates));
+        Assert.assertEquals("(3, 7)", Coordinates.toString(coordinates));
+    }
+
+    @Test
+    public void testOfNegativeAndLimits() {
+        long coordinates = Coordinates.of(-1, Integer.MIN_VALUE);
+
+        Assert.assertEquals(-1, Coordinates.x(coordinates));
+        Assert.assertEquals(Integer.MIN_VALUE, Coordinates.y(coordinates));
+        Assert.assertEquals(Integer.MAX_VALUE, Coordinates.y(Coordinates.of(0, Integer.MAX_VALUE)));
+        Assert.assertNotEquals(Coordinates.of(3, 7), Coordinates.of(7, 3));
+    }
+
+}
@@ -0,0 +1,192 @@
+package com.mlallaouret.minesweeper;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.concurrent.ForkJoinPool;
+
+public class GameEngineTest {
+
+    private Grid grid;
+    private GameEngine gameEngine;
+
+    @Before
+    public void setUp() {
+        grid = new Grid(3, 3, 1);
+        grid.setMineInCell(0, 0, true);
+        grid.calculateMineAroundNumber();
+        gameEngine = new GameEngine(grid);
+    }
+
+    @Test
+    public void testRevealNominal() {
+        MoveResult result = gameEngine.reveal(1, 0);
+
+        Assert.assertEquals(MoveResult.REVEALED, result);
+        Assert.assertEquals(1, gameEngine.getLastRevealedCells());
+        Assert.assertEquals(GameStatus.PLAYING, gameEngine.status());
+    }
+
+    @Test
+    public void testRevealAlreadyRevealedIgnored() {
+        gameEngine.reveal(1, 0);
+
+        Assert.assertEquals(MoveResult.IGNORED, gameEngine.reveal(1, 0));
+        Assert.assertEquals(0, gameEngine.getLastRevealedCells());
+    }
+
+    @Test
+    public void testRevealMineLoses() {
+        Assert.assertEquals(MoveResult.EXPLODED, gameEngine.reveal(0, 0));
+        Assert.assertEquals(GameStatus.LOST, gameEngine.status());
+        Assert.assertEquals(MoveResult.IGNORED, gameEngine.reveal(2, 2));
+    }
+
+    @Test
+    public void testRevealLastEmptyCellWins() {
+        Assert.assertEquals(MoveResult.WON, gameEngine.reveal(2, 2));
+        Assert.assertEquals(8, gameEngine.getLastRevealedCells());
+        Assert.assertEquals(GameStatus.WON, gameEngine.status());
+    }
+
+    @Test
+    public void testRevealWithPoolNominal() {
+        gameEngine.setRevealPool(ForkJoinPool.commonPool());
+
+        Assert.assertEquals(MoveResult.WON, gameEngine.reveal(2, 2));
+        Assert.assertEquals(8, gameEngine.getLastRevealedCells());
+        Assert.assertEquals(8, gameEngine.getLastDelta().size());
+        Assert.assertEquals(0, grid.getRemainingEmptyCell());
+    }
+
+    @Test
+    public void testListenerNotified() {
+        GameListener listener = Mockito.mock(GameListener.class);
+        gameEngine.addListener(listener);
+
+        gameEngine.reveal(1, 0);
+        gameEngine.reveal(0, 0);
+
+        Mockito.verify(listener).onMove(1, MoveResult.REVEALED, 1);
+        Mockito.verify(listener).onMove(0, MoveResult.EXPLODED, 1);
+        Mockito.verify(listener).onStatusChanged(GameStatus.LOST);
+    }
+
+    @Test
+    public void testFlagNominal() {
+        Assert.assertEquals(MoveResult.FLAGGED, gameEngine.flag(0, 0));
+        Assert.assertEquals(MoveResult.IGNORED, gameEngine.reveal(0, 0));
+        Assert.assertEquals(MoveResult.UNFLAGGED, gameEngine.flag(0, 0));
+        gameEngine.reveal(1, 0);
+        Assert.assertEquals(MoveResult.IGNORED, gameEngine.flag(1, 0));
+    }
+
+    @Test
+    public void testChordWins() {
+        gameEngine.reveal(1, 1);
+        gameEngine.flag(0, 0);
+
+        Assert.assertEquals(MoveResult.WON, gameEngine.chord(1, 1));
+        Assert.assertEquals(7, gameEngine.getLastRevealedCells());
+        Assert.assertEquals(GameStatus.WON, gameEngine.status());
+    }
+
+    @Test
+    public void testChordWrongFlagLoses() {
+        gameEngine.reveal(1, 1);
+        gameEngine.flag(2, 2);
+
+        Assert.assertEquals(MoveResult.EXPLODED, gameEngine.chord(1, 1));
+        Assert.assertEquals(GameStatus.LOST, gameEngine.status());
+    }
+
+    @Test
+    public void testChordNotPossibleIgnored() {
+        gameEngine.reveal(1, 1);
+
+        Assert.assertEquals(MoveResult.IGNORED, gameEngine.chord(1, 1));
+        Assert.assertEquals(MoveResult.IGNORED, gameEngine.chord(2, 2));
+    }
+
+    @Test
+    public void testListenerNotifiedOfFlagsAndChords() {
+        GameListener listener = Mockito.mock(GameListener.class);
+        gameEngine.addListener(listener);
+
+        gameEngine.reveal(1, 1);
+        gameEngine.flag(0, 0);
+        gameEngine.chord(1, 1);
+
+        Mockito.verify(listener).onFlagChanged(0, true);
+        Mockito.verify(listener).onChord(4, MoveResult.WON, 7);
+        Mockito.verify(listener).onStatusChanged(GameStatus.WON);
+    }
+
+    @Test
+    public void testLastDeltaHoldsRevealedCells() {
+        gameEngine.reveal(2, 2);
+
+        RevealDelta delta = gameEngine.getLastDelta();
+        Assert.assertEquals(8, delta.size());
+        Assert.assertEquals(8, delta.getIndex(0));
+        Assert.assertEquals(0, delta.getMineAroundNumber(0));
+        Assert.assertFalse(delta.isMine(0));
+        int mineAroundSum = 0;
+        for (int i = 0; i < delta.size(); i++) {
+            mineAroundSum += delta.getMineAroundNumber(i);
+        }
+        Assert.assertEquals(3, mineAroundSum);
+
+        gameEngine.reveal(2, 2);
+
+        Assert.assertEquals(0, gameEngine.getLastDelta().size());
+    }
+
+    @Test
+    public void testListenerNotifiedOfDelta() {
+        GameListener listener = Mockito.mock(GameListener.class);
+        gameEngine.addListener(listener);
+
+        gameEngine.reveal(1, 0);
+
+        Mockito.verify(listener).onCellsRevealed(gameEngine.getLastDelta());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testDeltaFailedOutOfBounds() {
+        gameEngine.reveal(1, 0);
+
+        gameEngine.getLastDelta().getIndex(1);
+    }
+
+    @Test
+    public void testUndoRedoLostGame() {
+        gameEngine.enableHistory();
+        gameEngine.reveal(1, 0);
+        gameEngine.reveal(0, 0);
+
+        Assert.assertTrue(gameEngine.undo());
+        Assert.assertEquals(GameStatus.PLAYING, gameEngine.status());
+        Assert.assertFalse(grid.isRevealed(0, 0));
+        Assert.assertTrue(grid.isRevealed(1, 0));
+
+        Assert.assertTrue(gameEngine.redo());
+        Assert.assertEquals(GameStatus.LOST, gameEngine.status());
+    }
+
+    @Test
+    public void testUndoWithoutHistoryIgnored() {
+        gameEngine.reveal(1, 0);
+
+        Assert.assertFalse(gameEngine.undo());
+        Assert.assertTrue(grid.isRevealed(1, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRevealFailedWrongCoordinates() {
+        gameEngine.reveal(3, 0);
+    }
+
+}
@@ -0,0 +1,183 @@
+package com.mlallaouret.minesweeper;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+public class GameServerTest {
+
+    private GameServer gameServer;
+
+    @Before
+    public void setUp() throws IOException {
+        gameServer = new GameServer(0, 2);
+        gameServer.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        gameServer.stop();
+    }
+
+    @Test
+    public void testPlayOverSocket() throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), gameServer.getPort());
+        try {
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            OutputStream out = socket.getOutputStream();
+
+            out.write("NEW 3 3 1 42\nSTATUS 1\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            Assert.assertEquals("OK 1", reader.readLine());
+            Assert.assertEquals("PLAYING 8", reader.readLine());
+
+            out.write("CLOSE 1\nSTATUS 1\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            Assert.assertEquals("OK", reader.readLine());
+            Assert.assertEquals("ERROR Unknown session", reader.readLine());
+
+            // The grid of the closed session is reused by the next one
+            out.write("NEW 3 3 1 42\nSTATUS 2\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            Assert.assertEquals("OK 2", reader.readLine());
+            Assert.assertEquals("PLAYING 8", reader.readLine());
+        } finally {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void testSessionsClosedWithConnection() throws IOException, InterruptedException {
+        Assert.assertTrue(gameServer.handleCommand("NEW 9 9 10 1").startsWith(GameServer.OK));
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), gameServer.getPort());
+        try {
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            OutputStream out = socket.getOutputStream();
+
+            out.write("NEW 9 9 10 2\nNEW 9 9 10 3\nCLOSE 2\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            Assert.assertEquals("OK 2", reader.readLine());
+            Assert.assertEquals("OK 3", reader.readLine());
+            Assert.assertEquals("OK", reader.readLine());
+            Assert.assertEquals(2, gameServer.getSessionNumber());
+        } finally {
+            socket.close();
+        }
+
+        // The session left open by the connection is closed, the one created without connection is kept
+        long deadline = System.currentTimeMillis() + 5000;
+        while (gameServer.getSessionNumber() != 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(1, gameServer.getSessionNumber());
+        Assert.assertEquals("ERROR Unknown session", gameServer.handleCommand("STATUS 3"));
+        Assert.assertEquals("PLAYING 71", gameServer.handleCommand("STATUS 1"));
+    }
+
+    @Test
+    public void testRevealCommand() {
+        Assert.assertEquals("OK 1", gameServer.handleCommand("NEW 3 3 1 42"));
+        Grid grid = new Grid(3, 3, 1, 42L);
+        grid.placeMines();
+        int mineIndex = 0;
+        while (!grid.isMineInCell(grid.widthOf(mineIndex), grid.heightOf(mineIndex))) {
+            mineIndex++;
+        }
+
+        String answer = gameServer.handleCommand("REVEAL 1 " + grid.widthOf(mineIndex) + " "
+                + grid.heightOf(mineIndex));
+
+        Assert.assertEquals("EXPLODED 1 LOST", answer);
+        Assert.assertEquals("IGNORED 0 LOST", gameServer.handleCommand("REVEAL 1 0 0"));
+    }
+
+    @Test
+    public void testNewCommandWithoutSeed() {
+        // A pregenerated expert board or one generated on the shard, the answer is the same
+        Assert.assertEquals("OK 1", gameServer.handleCommand("NEW 30 16 99"));
+        Assert.assertEquals("OK 2", gameServer.handleCommand("NEW 7 5 3"));
+
+        Assert.assertEquals("PLAYING 381", gameServer.handleCommand("STATUS 1"));
+        Assert.assertEquals("PLAYING 32", gameServer.handleCommand("STATUS 2"));
+    }
+
+    @Test
+    public void testNewCommandFailedTooLarge() {
+        String error = "ERROR Wrong grid dimensions or mine number";
+
+        Assert.assertEquals(error, gameServer.handleCommand("NEW 50000 50000 1 5"));
+        Assert.assertEquals(error, gameServer.handleCommand("NEW 5000 5000 1 5"));
+        Assert.assertEquals("OK 1", gameServer.handleCommand("NEW 4096 4096 1 5"));
+    }
+
+    @Test
+    public void testCommandsAfterClose() {
+        Assert.assertEquals("OK 1", gameServer.handleCommand("NEW 3 3 1 42"));
+        Assert.assertEquals("OK", gameServer.handleCommand("CLOSE 1"));
+
+        Assert.assertEquals("ERROR Unknown session", gameServer.handleCommand("REVEAL 1 1 1"));
+        Assert.assertEquals("ERROR Unknown session", gameServer.handleCommand("DELTA 1"));
+        Assert.assertEquals("ERROR Unknown session", gameServer.handleCommand("CLOSE 1"));
+        Assert.assertEquals(0, gameServer.getSessionNumber());
+    }
+
+    @Test
+    public void testFlagAndChordCommands() {
+        Assert.assertEquals("OK 1", gameServer.handleCommand("NEW 3 3 1 42"));
+
+        Assert.assertEquals("FLAGGED 0 PLAYING", gameServer.handleCommand("FLAG 1 1 1"));
+        Assert.assertEquals("UNFLAGGED 0 PLAYING", gameServer.handleCommand("FLAG 1 1 1"));
+        Assert.assertEquals("IGNORED 0 PLAYING", gameServer.handleCommand("CHORD 1 1 1"));
+    }
+
+    @Test
+    public void testDeltaCommand() {
+        Assert.assertEquals("OK 1", gameServer.handleCommand("NEW 3 3 1 42"));
+        Assert.assertEquals("0", gameServer.handleCommand("DELTA 1"));
+        Grid grid = new Grid(3, 3, 1, 42L);
+        grid.placeMines();
+        grid.calculateMineAroundNumber();
+        int mineIndex = 0;
+        while (!grid.isMineInCell(grid.widthOf(mineIndex), grid.heightOf(mineIndex))) {
+            mineIndex++;
+        }
+
+        gameServer.handleCommand("REVEAL 1 " + grid.widthOf(mineIndex) + " " + grid.heightOf(mineIndex));
+
+        Assert.assertEquals("1 " + mineIndex + ":*", gameServer.handleCommand("DELTA 1"));
+    }
+
+    @Test
+    public void testManySessions() {
+        for (int i = 1; i <= 10000; i++) {
+            Assert.assertEquals("OK " + i, gameServer.handleCommand("NEW 9 9 10"));
+        }
+
+        Assert.assertEquals(10000, gameServer.getSessionNumber());
+    }
+
+    @Test
+    public void testWrongCommands() {
+        Assert.assertEquals("ERROR Unknown command", gameServer.handleCommand("JUMP 1"));
+        Assert.assertEquals("ERROR Not a number", gameServer.handleCommand("REVEAL a 1 1"));
+        Assert.assertEquals("ERROR Wrong grid dimensions or mine number", gameServer.handleCommand("NEW 3 3 9"));
+        Assert.assertEquals("ERROR Unknown session", gameServer.handleCommand("REVEAL 5 1 1"));
+        Assert.assertEquals("OK 1", gameServer.handleCommand("NEW 3 3 1"));
+        Assert.assertEquals("ERROR Wrong grid Coordinates", gameServer.handleCommand("REVEAL 1 3 1"));
+    }
+}
@@ -1,6 +1,5 @@
 package com.mlallaouret.minesweeper;
 
-import org.apache.commons.lang3.tuple.Pair;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
@@ -8,6 +7,7 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -109,7 +109,7 @@ public class GameTest {
 
     @Test
     public void testAskPlayerForCoordinatesNominal() {
-        Pair<Integer, Integer> expectedCoordinates = Pair.of(2, 2);
+        long expectedCoordinates = Coordinates.of(2, 2);
         String userInput = "2,2";
         String splitUserInput = "2";
         int gridDimension = 6;
@@ -120,7 +120,7 @@ public class GameTest {
         Mockito.when(grid.getGridHeight()).thenReturn(gridDimension);
         Mockito.when(grid.getGridWidth()).thenReturn(gridDimension);
 
-        Pair<Integer, Integer> coordinates = game.askPlayerForCoordinate();
+        long coordinates = game.askPlayerForCoordinate();
 
         Mockito.verify(gameUtil, Mockito.times(1)).printMessageToPlayer(Game.CHOOSE_COORDINATE);
 
@@ -129,7 +129,7 @@ public class GameTest {
 
     @Test
     public void testAskPlayerForCoordinatesFailedWrongFormat() {
-        Pair<Integer, Integer> expectedCoordinates = Pair.of(2, 2);
+        long expectedCoordinates = Coordinates.of(2, 2);
         String wrongUserInput = "gjhjg";
         String goodUserInput = "2,2";
         String splitUserInput = "2";
@@ -141,7 +141,7 @@ public class GameTest {
         Mockito.when(grid.getGridHeight()).thenReturn(gridDimension);
         Mockito.when(grid.getGridWidth()).thenReturn(gridDimension);
 
-        Pair<Integer, Integer> coordinates = game.askPlayerForCoordinate();
+        long coordinates = game.askPlayerForCoordinate();
 
         Mockito.verify(gameUtil, Mockito.times(2)).printMessageToPlayer(Game.CHOOSE_COORDINATE);
         Mockito.verify(gameUtil, Mockito.times(1)).printMessageToPlayer(Game.NOT_VALID_INPUT);
@@ -151,7 +151,7 @@ public class GameTest {
 
     @Test
     public void testAskPlayerForCoordinatesFailedWithTooHigh() {
-        Pair<Integer, Integer> expectedCoordinates = Pair.of(2, 2);
+        long expectedCoordinates = Coordinates.of(2, 2);
         String wrongUserInput = "6,4";
         String goodUserInput = "2,2";
         String wrongWidthUserInput = "6";
@@ -167,7 +167,7 @@ public class GameTest {
         Mockito.when(grid.getGridHeight()).thenReturn(gridDimension);
         Mockito.when(grid.getGridWidth()).thenReturn(gridDimension);
 
-        Pair<Integer, Integer> coordinates = game.askPlayerForCoordinate();
+        long coordinates = game.askPlayerForCoordinate();
 
         Mockito.verify(gameUtil, Mockito.times(2)).printMessageToPlayer(Game.CHOOSE_COORDINATE);
         Mockito.verify(gameUtil, Mockito.times(1)).printMessageToPlayer(Game.NOT_VALID_INPUT);
@@ -178,23 +178,23 @@ public class GameTest {
 
     @Test
     public void testAskPlayerForGridSizeNominal() {
-        Pair<Integer, Integer> expectedCoordinates = Pair.of(5, 5);
+        int[] expectedGridSize = {5, 5};
         String userInput = "5x5";
         String splitUserInput = "5";
 
         Mockito.when(gameUtil.getPlayerChoice()).thenReturn(userInput);
         Mockito.when(gameUtil.parsePlayerChoice(splitUserInput)).thenReturn(5);
 
-        Pair<Integer, Integer> gridSize = game.askPlayerForGridSize();
+        int[] gridSize = game.askPlayerForGridSize();
 
         Mockito.verify(gameUtil, Mockito.times(1)).printMessageToPlayer(Game.CHOOSE_GRID_SIZE);
 
-        assertEquals(expectedCoordinates, gridSize);
+        assertArrayEquals(expectedGridSize, gridSize);
     }
 
     @Test
     public void testAskPlayerForGridSizeFailedDimensionNegative() {
-        Pair<Integer, Integer> expectedCoordinates = Pair.of(5, 5);
+        int[] expectedGridSize = {5, 5};
         String wrongUserInput = "-5x-5";
         String goodUserInput = "5x5";
         String wrongSplitUserInput = "-5";
@@ -204,12 +204,12 @@ public class GameTest {
         Mockito.when(gameUtil.parsePlayerChoice(wrongSplitUserInput)).thenReturn(-5);
         Mockito.when(gameUtil.parsePlayerChoice(goodSplitUserInput)).thenReturn(5);
 
-        Pair<Integer, Integer> gridSize = game.askPlayerForGridSize();
+        int[] gridSize = game.askPlayerForGridSize();
 
         Mockito.verify(gameUtil, Mockito.times(2)).printMessageToPlayer(Game.CHOOSE_GRID_SIZE);
         Mockito.verify(gameUtil, Mockito.times(1)).printMessageToPlayer(Game.NOT_VALID_INPUT);
 
-        assertEquals(expectedCoordinates, gridSize);
+        assertArrayEquals(expectedGridSize, gridSize);
     }
 
 }
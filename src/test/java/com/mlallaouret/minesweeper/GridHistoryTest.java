@@ -0,0 +1,95 @@
+package com.mlallaouret.minesweeper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GridHistoryTest {
+
+    @Test
+    public void testRollbackNominal() {
+        Grid grid = newGrid();
+        GridHistory history = new GridHistory(grid);
+        history.revealCells(0, 0);
+        byte[] cells = grid.getCells().clone();
+        int remainingEmptyCell = grid.getRemainingEmptyCell();
+
+        int checkpoint = history.checkpoint();
+        history.toggleFlag(29, 15);
+        history.revealCells(0, 15);
+        history.revealCells(29, 0);
+        int branchMoves = history.getMoveNumber() - checkpoint;
+        history.rollback(checkpoint);
+
+        Assert.assertArrayEquals(cells, grid.getCells());
+        Assert.assertEquals(remainingEmptyCell, grid.getRemainingEmptyCell());
+        Assert.assertEquals(0, grid.getFlagAroundNumber(28, 14));
+        Assert.assertEquals(branchMoves, history.getRedoableMoveNumber());
+    }
+
+    @Test
+    public void testRedoNominal() {
+        Grid grid = newGrid();
+        GridHistory history = new GridHistory(grid);
+        history.revealCells(0, 0);
+        history.toggleFlag(29, 15);
+        history.revealCells(0, 15);
+        byte[] cells = grid.getCells().clone();
+        int remainingEmptyCell = grid.getRemainingEmptyCell();
+
+        history.rollback(0);
+        while (history.redo()) {
+            // Play again all the moves
+        }
+
+        Assert.assertArrayEquals(cells, grid.getCells());
+        Assert.assertEquals(remainingEmptyCell, grid.getRemainingEmptyCell());
+        Assert.assertEquals(1, grid.getFlagAroundNumber(28, 14));
+    }
+
+    @Test
+    public void testNewMoveDropsRedo() {
+        Grid grid = newGrid();
+        GridHistory history = new GridHistory(grid);
+        history.revealCells(0, 0);
+        history.revealCells(0, 15);
+
+        Assert.assertTrue(history.undo());
+        history.toggleFlag(29, 15);
+
+        Assert.assertEquals(0, history.getRedoableMoveNumber());
+        Assert.assertFalse(history.redo());
+        Assert.assertEquals(2, history.getMoveNumber());
+    }
+
+    @Test
+    public void testLastMoveRevealedMine() {
+        Grid grid = new Grid(2, 1, 1);
+        grid.setMineInCell(0, 0, true);
+        grid.calculateMineAroundNumber();
+        GridHistory history = new GridHistory(grid);
+
+        history.revealCells(1, 0);
+        Assert.assertFalse(history.lastMoveRevealedMine());
+        history.revealCells(0, 0);
+        Assert.assertTrue(history.lastMoveRevealedMine());
+    }
+
+    @Test
+    public void testUndoFailedNoMove() {
+        Assert.assertFalse(new GridHistory(newGrid()).undo());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRollbackFailedCheckpointAhead() {
+        GridHistory history = new GridHistory(newGrid());
+
+        history.rollback(1);
+    }
+
+    private static Grid newGrid() {
+        Grid grid = new Grid(30, 16, 40, 12L);
+        grid.placeMines(0, 0);
+        grid.calculateMineAroundNumber();
+        return grid;
+    }
+}
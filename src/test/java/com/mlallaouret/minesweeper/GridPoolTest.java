@@ -0,0 +1,87 @@
+package com.mlallaouret.minesweeper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GridPoolTest {
+
+    @Test
+    public void testAcquireNominal() {
+        GridPool gridPool = new GridPool(2, 2);
+        Grid grid = gridPool.acquire(8, 6, 10, 1L);
+        grid.placeMines();
+        grid.calculateMineAroundNumber();
+        grid.revealCells(0, 0);
+
+        Assert.assertTrue(gridPool.release(grid));
+        Assert.assertEquals(1, gridPool.size());
+        Grid reusedGrid = gridPool.acquire(8, 6, 12, 2L);
+        reusedGrid.placeMines();
+        Grid expectedGrid = new Grid(8, 6, 12, 2L);
+        expectedGrid.placeMines();
+
+        Assert.assertSame(grid, reusedGrid);
+        Assert.assertEquals(0, gridPool.size());
+        Assert.assertEquals(12, reusedGrid.getNumberOfMines());
+        Assert.assertEquals(2L, reusedGrid.getSeed());
+        Assert.assertEquals(36, reusedGrid.getRemainingEmptyCell());
+        Assert.assertArrayEquals(expectedGrid.getCells(), reusedGrid.getCells());
+    }
+
+    @Test
+    public void testAcquireOtherSize() {
+        GridPool gridPool = new GridPool(2, 2);
+        Grid grid = gridPool.acquire(8, 6, 10, 1L);
+        gridPool.release(grid);
+
+        Grid otherGrid = gridPool.acquire(6, 8, 10, 1L);
+
+        Assert.assertNotSame(grid, otherGrid);
+        Assert.assertEquals(6, otherGrid.getGridWidth());
+        Assert.assertEquals(8, otherGrid.getGridHeight());
+        Assert.assertEquals(1, gridPool.size());
+    }
+
+    @Test
+    public void testReleaseBounded() {
+        GridPool gridPool = new GridPool(1, 2);
+
+        Assert.assertTrue(gridPool.release(new Grid(8, 6, 10)));
+        Assert.assertTrue(gridPool.release(new Grid(8, 6, 10)));
+        Assert.assertFalse(gridPool.release(new Grid(8, 6, 10)));
+        Assert.assertFalse(gridPool.release(new Grid(6, 8, 10)));
+        Assert.assertEquals(2, gridPool.size());
+    }
+
+    @Test
+    public void testAcquireWithoutMine() {
+        GridPool gridPool = new GridPool(1, 1);
+        Grid grid = gridPool.acquire(8, 6, 0, 1L);
+        gridPool.release(grid);
+
+        Grid reusedGrid = gridPool.acquire(8, 6, 0, 2L);
+
+        Assert.assertSame(grid, reusedGrid);
+        Assert.assertEquals(48, reusedGrid.getRemainingEmptyCell());
+    }
+
+    @Test
+    public void testNewGameWithPool() {
+        GridPool gridPool = new GridPool(1, 1);
+        GameEngine firstGame = GameEngine.newGame(gridPool, 9, 9, 10, 3L);
+        firstGame.reveal(4, 4);
+        gridPool.release(firstGame.getGrid());
+
+        GameEngine secondGame = GameEngine.newGame(gridPool, 9, 9, 10, 3L);
+        GameEngine expectedGame = GameEngine.newGame(9, 9, 10, 3L);
+
+        Assert.assertSame(firstGame.getGrid(), secondGame.getGrid());
+        Assert.assertEquals(GameStatus.PLAYING, secondGame.status());
+        Assert.assertArrayEquals(expectedGame.getGrid().getCells(), secondGame.getGrid().getCells());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGridPoolFailedWrongBounds() {
+        new GridPool(0, 1);
+    }
+}
@@ -0,0 +1,144 @@
+package com.mlallaouret.minesweeper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+public class GridRendererTest {
+
+    private GridRenderer gridRenderer = new GridRenderer();
+
+    @Test
+    public void testRenderWholeGrid() throws IOException {
+        Grid grid = new Grid(3, 2, 0);
+        grid.setMineInCell(0, 0, true);
+        grid.calculateMineAroundNumber();
+        grid.revealCells(2, 1);
+        grid.revealCells(0, 0);
+        grid.toggleFlag(0, 1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        gridRenderer.render(grid, out);
+
+        String expected = " |0|1|2|\n"
+                + "--------\n"
+                + "0|*|1|0|\n"
+                + "1|F|1|0|\n"
+                + "--------\n";
+        Assert.assertEquals(expected, out.toString("US-ASCII"));
+    }
+
+    @Test
+    public void testRenderViewport() throws IOException {
+        Grid grid = new Grid(12, 12, 0);
+        grid.calculateMineAroundNumber();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        gridRenderer.render(grid, out, 9, 10, 2, 5);
+
+        String expected = " |9|10|\n"
+                + "------\n"
+                + "10|X|X|\n"
+                + "11|X|X|\n"
+                + "------\n";
+        Assert.assertEquals(expected, out.toString("US-ASCII"));
+    }
+
+    @Test
+    public void testRenderReusesBufferForLargeGrid() throws IOException {
+        Grid grid = new Grid(500, 500, 0);
+        grid.calculateMineAroundNumber();
+        grid.revealCells(0, 0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        gridRenderer.render(grid, out);
+        int firstSize = out.size();
+        gridRenderer.render(grid, out);
+
+        Assert.assertEquals(2 * firstSize, out.size());
+    }
+
+    @Test
+    public void testRenderFramePatchedByMoves() throws IOException {
+        GameEngine gameEngine = GameEngine.newGame(12, 11, 20, 4L);
+        Grid grid = gameEngine.getGrid();
+        gameEngine.addListener(new GameListener() {
+            @Override
+            public void onMove(int index, MoveResult result, int revealedCells) {
+            }
+
+            @Override
+            public void onStatusChanged(GameStatus status) {
+            }
+
+            @Override
+            public void onCellsRevealed(RevealDelta delta) {
+                gridRenderer.patchFrame(delta);
+            }
+
+            @Override
+            public void onFlagChanged(int index, boolean flagged) {
+                gridRenderer.patchFrame(grid, index);
+            }
+        });
+        gridRenderer.renderFrame(grid, new ByteArrayOutputStream());
+
+        for (int index = 0; index < 132 && gameEngine.status() == GameStatus.PLAYING; index += 7) {
+            if (grid.isMineInCell(index % 12, index / 12)) {
+                gameEngine.flag(index % 12, index / 12);
+            } else {
+                gameEngine.reveal(index % 12, index / 12);
+            }
+        }
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        gridRenderer.renderFrame(grid, frame);
+        ByteArrayOutputStream drawing = new ByteArrayOutputStream();
+        gridRenderer.render(grid, drawing);
+
+        Assert.assertEquals(drawing.toString("US-ASCII"), frame.toString("US-ASCII"));
+    }
+
+    @Test
+    public void testRenderFrameAfterUndo() throws IOException {
+        GameEngine gameEngine = GameEngine.newGame(9, 9, 10, 4L);
+        gameEngine.enableHistory();
+        Grid grid = gameEngine.getGrid();
+        gridRenderer.renderFrame(grid, new ByteArrayOutputStream());
+        ByteArrayOutputStream hidden = new ByteArrayOutputStream();
+        gridRenderer.render(grid, hidden);
+        int index = 0;
+        while (grid.isMineInCell(index % 9, index / 9)) {
+            index++;
+        }
+        gameEngine.reveal(index % 9, index / 9);
+        gridRenderer.patchFrame(gameEngine.getLastDelta());
+
+        gameEngine.undo();
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        gridRenderer.renderFrame(grid, frame);
+
+        Assert.assertEquals(hidden.toString("US-ASCII"), frame.toString("US-ASCII"));
+    }
+
+    @Test
+    public void testRenderFrameAfterReset() throws IOException {
+        Grid grid = new Grid(9, 9, 10, 4L);
+        grid.placeMines();
+        grid.calculateMineAroundNumber();
+        grid.revealCells(0, 0);
+        gridRenderer.renderFrame(grid, new ByteArrayOutputStream());
+
+        // The grid is reused in place for a new game, as the grid pool does
+        grid.reset(5L, 12);
+        grid.placeMines();
+        grid.calculateMineAroundNumber();
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        gridRenderer.renderFrame(grid, frame);
+        ByteArrayOutputStream drawing = new ByteArrayOutputStream();
+        gridRenderer.render(grid, drawing);
+
+        Assert.assertEquals(drawing.toString("US-ASCII"), frame.toString("US-ASCII"));
+    }
+}
@@ -0,0 +1,74 @@
+package com.mlallaouret.minesweeper;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class GridSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSaveLoadNominal() throws IOException {
+        Grid grid = new Grid(9, 7, 10, 42L);
+        grid.placeMines(3, 3);
+        grid.calculateMineAroundNumber();
+        grid.revealCells(3, 3);
+        grid.toggleFlag(8, 6);
+        Path path = folder.newFile().toPath();
+
+        GridSnapshot.save(grid, path);
+        Grid loaded = GridSnapshot.load(path);
+
+        Assert.assertEquals(9, loaded.getGridWidth());
+        Assert.assertEquals(7, loaded.getGridHeight());
+        Assert.assertEquals(10, loaded.getNumberOfMines());
+        Assert.assertEquals(grid.getRemainingEmptyCell(), loaded.getRemainingEmptyCell());
+        Assert.assertEquals(42L, loaded.getSeed());
+        Assert.assertArrayEquals(grid.getCells(), loaded.getCells());
+        Assert.assertEquals(1, loaded.getFlagAroundNumber(7, 5));
+        Assert.assertEquals(GridSnapshot.HEADER_SIZE + 3 * Long.BYTES, Files.size(path));
+    }
+
+    @Test
+    public void testSaveLoadLargeGrid() throws IOException {
+        Grid grid = new Grid(3000, 1001, 600000, 7L);
+        grid.placeMines();
+        grid.calculateMineAroundNumber();
+        grid.revealCells(1500, 500);
+        Path path = folder.newFile().toPath();
+
+        GridSnapshot.save(grid, path);
+        Grid loaded = GridSnapshot.load(path);
+
+        Assert.assertTrue(Arrays.equals(grid.getCells(), loaded.getCells()));
+        Assert.assertEquals(grid.getRemainingEmptyCell(), loaded.getRemainingEmptyCell());
+    }
+
+    @Test(expected = IOException.class)
+    public void testLoadFailedNotSnapshot() throws IOException {
+        Path path = folder.newFile().toPath();
+        Files.write(path, "Not a grid at all, just some text".getBytes("US-ASCII"));
+
+        GridSnapshot.load(path);
+    }
+
+    @Test(expected = IOException.class)
+    public void testLoadFailedTruncated() throws IOException {
+        Grid grid = new Grid(100, 100, 10, 1L);
+        grid.placeMines();
+        Path path = folder.newFile().toPath();
+        GridSnapshot.save(grid, path);
+        byte[] content = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(content, content.length - 8));
+
+        GridSnapshot.load(path);
+    }
+}
@@ -7,7 +7,10 @@ import org.mockito.InjectMocks;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
 
 /**
  * Created by mlallaouret on 5/22/15.
@@ -43,11 +46,10 @@ public class GridTest {
     public void testIsMineInCellNominalTrue() {
         boolean expectedIsMineInCell = true;
 
-        Cell minedCell = new Cell(0, 0);
-        minedCell.setContainsMine(true);
-
-        Cell[][] cells = {{minedCell}};
-        grid.setCells(cells);
+        grid.setGridHeight(1);
+        grid.setGridWidth(1);
+        grid.setCells(new byte[1]);
+        grid.setMineInCell(0, 0, true);
 
         boolean mineInCell = grid.isMineInCell(0, 0);
 
@@ -58,11 +60,10 @@ public class GridTest {
     public void testIsMineInCellNominalFalse() {
         boolean expectedIsMineInCell = false;
 
-        Cell minedCell = new Cell(0, 0);
-        minedCell.setContainsMine(false);
-
-        Cell[][] cells = {{minedCell}};
-        grid.setCells(cells);
+        grid.setGridHeight(1);
+        grid.setGridWidth(1);
+        grid.setCells(new byte[1]);
+        grid.setMineInCell(0, 0, false);
 
         boolean mineInCell = grid.isMineInCell(0, 0);
 
@@ -74,207 +75,528 @@ public class GridTest {
         grid.setGridHeight(4);
         grid.setGridWidth(4);
 
-        grid.isMineInCell(5, 1);
+        grid.isMineInCell(1, 5);
     }
 
     @Test
-    public void testGetNeighbourCellsInCenter() {
-        Cell[][] squareGrid = createSquareGrid();
-        grid.setCells(squareGrid);
-        Cell centerCell = new Cell(1, 1);
-        List<Cell> neighbourCells = grid.getNeighbourCells(centerCell);
+    public void testGetNeighbourIndexesInCenter() {
+        createSquareGrid();
+        int neighbourNumber = grid.getNeighbourIndexes(grid.indexOf(1, 1), new int[8]);
 
-        Assert.assertEquals(8, neighbourCells.size());
+        Assert.assertEquals(8, neighbourNumber);
     }
 
     @Test
-    public void testGetNeighbourCellsInUpperLeft() {
-        Cell[][] squareGrid = createSquareGrid();
-        grid.setCells(squareGrid);
-        Cell centerCell = new Cell(0, 0);
-        List<Cell> neighbourCells = grid.getNeighbourCells(centerCell);
+    public void testGetNeighbourIndexesInUpperLeft() {
+        createSquareGrid();
+        int neighbourNumber = grid.getNeighbourIndexes(grid.indexOf(0, 0), new int[8]);
 
-        Assert.assertEquals(3, neighbourCells.size());
+        Assert.assertEquals(3, neighbourNumber);
     }
 
     @Test
-    public void testGetNeighbourCellsInMidTop() {
-        Cell[][] squareGrid = createSquareGrid();
-        grid.setCells(squareGrid);
-        Cell centerCell = new Cell(0, 1);
-        List<Cell> neighbourCells = grid.getNeighbourCells(centerCell);
+    public void testGetNeighbourIndexesInMidTop() {
+        createSquareGrid();
+        int neighbourNumber = grid.getNeighbourIndexes(grid.indexOf(0, 1), new int[8]);
 
-        Assert.assertEquals(5, neighbourCells.size());
+        Assert.assertEquals(5, neighbourNumber);
     }
 
     @Test
-    public void testGetNeighbourCellsInUpperRight() {
-        Cell[][] squareGrid = createSquareGrid();
-        grid.setCells(squareGrid);
-        Cell centerCell = new Cell(0, 2);
-        List<Cell> neighbourCells = grid.getNeighbourCells(centerCell);
+    public void testGetNeighbourIndexesInUpperRight() {
+        createSquareGrid();
+        int neighbourNumber = grid.getNeighbourIndexes(grid.indexOf(0, 2), new int[8]);
 
-        Assert.assertEquals(3, neighbourCells.size());
+        Assert.assertEquals(3, neighbourNumber);
     }
 
     @Test
-    public void testGetNeighbourCellsInMidRight() {
-        Cell[][] squareGrid = createSquareGrid();
-        grid.setCells(squareGrid);
-        Cell centerCell = new Cell(1, 2);
-        List<Cell> neighbourCells = grid.getNeighbourCells(centerCell);
+    public void testGetNeighbourIndexesInMidRight() {
+        createSquareGrid();
+        int neighbourNumber = grid.getNeighbourIndexes(grid.indexOf(1, 2), new int[8]);
 
-        Assert.assertEquals(5, neighbourCells.size());
+        Assert.assertEquals(5, neighbourNumber);
     }
 
     @Test
-    public void testGetNeighbourCellsInLowerLeft() {
-        Cell[][] squareGrid = createSquareGrid();
-        grid.setCells(squareGrid);
-        Cell centerCell = new Cell(2, 0);
-        List<Cell> neighbourCells = grid.getNeighbourCells(centerCell);
+    public void testGetNeighbourIndexesInLowerLeft() {
+        createSquareGrid();
+        int neighbourNumber = grid.getNeighbourIndexes(grid.indexOf(2, 0), new int[8]);
 
-        Assert.assertEquals(3, neighbourCells.size());
+        Assert.assertEquals(3, neighbourNumber);
     }
 
     @Test
-    public void testGetNeighbourCellsInMidLower() {
-        Cell[][] squareGrid = createSquareGrid();
-        grid.setCells(squareGrid);
-        Cell centerCell = new Cell(2, 1);
-        List<Cell> neighbourCells = grid.getNeighbourCells(centerCell);
+    public void testGetNeighbourIndexesInMidLower() {
+        createSquareGrid();
+        int neighbourNumber = grid.getNeighbourIndexes(grid.indexOf(2, 1), new int[8]);
 
-        Assert.assertEquals(5, neighbourCells.size());
+        Assert.assertEquals(5, neighbourNumber);
     }
 
     @Test
-    public void testGetNeighbourCellsInLowerRight() {
-        Cell[][] squareGrid = createSquareGrid();
-        grid.setCells(squareGrid);
-        Cell centerCell = new Cell(2, 2);
-        List<Cell> neighbourCells = grid.getNeighbourCells(centerCell);
+    public void testGetNeighbourIndexesInLowerRight() {
+        createSquareGrid();
+        int neighbourNumber = grid.getNeighbourIndexes(grid.indexOf(2, 2), new int[8]);
 
-        Assert.assertEquals(3, neighbourCells.size());
+        Assert.assertEquals(3, neighbourNumber);
+    }
+
+    @Test
+    public void testGetNeighbourIndexesRectangularGrid() {
+        Grid rectangularGrid = new Grid(5, 2, 0);
+        int[] neighbours = new int[8];
+
+        int neighbourNumber = rectangularGrid.getNeighbourIndexes(rectangularGrid.indexOf(4, 1), neighbours);
+
+        Assert.assertEquals(3, neighbourNumber);
+        Assert.assertArrayEquals(new int[]{3, 4, 8}, Arrays.copyOf(neighbours, neighbourNumber));
+        Assert.assertEquals(5, rectangularGrid.getNeighbourIndexes(rectangularGrid.indexOf(2, 0), neighbours));
+    }
+
+    @Test
+    public void testForEachNeighbour() {
+        Grid rectangularGrid = new Grid(4, 3, 0);
+        final List<Integer> neighbours = new ArrayList<Integer>();
+
+        rectangularGrid.forEachNeighbour(rectangularGrid.indexOf(1, 1), new IntConsumer() {
+            @Override
+            public void accept(int index) {
+                neighbours.add(index);
+            }
+        });
+
+        Assert.assertEquals(Arrays.asList(0, 1, 2, 4, 6, 8, 9, 10), neighbours);
     }
 
 
     @Test
     public void testCalculateMineAroundNumbers() {
-        Cell[][] squareGrid = createSquareGrid();
-        grid.setCells(squareGrid);
-        grid.getCells()[0][0].setContainsMine(true);
+        createSquareGrid();
+        grid.setMineInCell(0, 0, true);
 
         grid.calculateMineAroundNumber();
 
-        Cell[][] cells = grid.getCells();
+        Assert.assertEquals(0, grid.getMineAroundNumber(0, 0));
+        Assert.assertEquals(1, grid.getMineAroundNumber(1, 0));
+        Assert.assertEquals(1, grid.getMineAroundNumber(0, 1));
+        Assert.assertEquals(1, grid.getMineAroundNumber(1, 1));
+        Assert.assertEquals(0, grid.getMineAroundNumber(2, 0));
+        Assert.assertEquals(0, grid.getMineAroundNumber(2, 1));
+        Assert.assertEquals(0, grid.getMineAroundNumber(0, 2));
+        Assert.assertEquals(0, grid.getMineAroundNumber(1, 2));
+        Assert.assertEquals(0, grid.getMineAroundNumber(2, 2));
 
-        Assert.assertEquals(0, cells[0][0].getMineAroundNumber());
-        Assert.assertEquals(1, cells[0][1].getMineAroundNumber());
-        Assert.assertEquals(1, cells[1][0].getMineAroundNumber());
-        Assert.assertEquals(1, cells[1][1].getMineAroundNumber());
-        Assert.assertEquals(0, cells[0][2].getMineAroundNumber());
-        Assert.assertEquals(0, cells[1][2].getMineAroundNumber());
-        Assert.assertEquals(0, cells[2][0].getMineAroundNumber());
-        Assert.assertEquals(0, cells[2][1].getMineAroundNumber());
-        Assert.assertEquals(0, cells[2][2].getMineAroundNumber());
+    }
 
+    @Test
+    public void testCalculateMineAroundNumbersRectangularGrid() {
+        Grid rectangularGrid = new Grid(7, 4, 0);
+        rectangularGrid.setMineInCell(6, 3, true);
+        rectangularGrid.setMineInCell(5, 0, true);
+        rectangularGrid.setMineInCell(5, 1, true);
+
+        rectangularGrid.calculateMineAroundNumber();
+
+        Assert.assertEquals(1, rectangularGrid.getMineAroundNumber(5, 3));
+        Assert.assertEquals(2, rectangularGrid.getMineAroundNumber(6, 2));
+        Assert.assertEquals(2, rectangularGrid.getMineAroundNumber(6, 0));
+        Assert.assertEquals(2, rectangularGrid.getMineAroundNumber(5, 2));
+        Assert.assertEquals(2, rectangularGrid.getMineAroundNumber(4, 1));
+        Assert.assertEquals(0, rectangularGrid.getMineAroundNumber(0, 3));
+    }
+
+    @Test
+    public void testCalculateMineAroundNumbersParallel() {
+        Grid sequentialGrid = new Grid(601, 433, 80000, 7L);
+        Grid parallelGrid = new Grid(601, 433, 80000, 7L);
+        sequentialGrid.placeMines();
+        parallelGrid.placeMines();
+
+        sequentialGrid.calculateMineAroundNumber();
+        parallelGrid.calculateMineAroundNumber(ForkJoinPool.commonPool());
+
+        Assert.assertArrayEquals(sequentialGrid.getCells(), parallelGrid.getCells());
     }
 
     @Test
     public void testRevealOnlyOneCell() {
-        Cell[][] squareGrid = createSquareGrid();
-        grid.setCells(squareGrid);
-        grid.getCells()[0][0].setContainsMine(true);
+        createSquareGrid();
+        grid.setMineInCell(0, 0, true);
         grid.setRemainingEmptyCell(8);
 
         grid.calculateMineAroundNumber();
-        grid.revealCells(0, 1);
-
-        Cell[][] cells = grid.getCells();
-
-        Assert.assertEquals(false, cells[0][0].isRevealed());
-        Assert.assertEquals(true, cells[0][1].isRevealed());
-        Assert.assertEquals(false, cells[1][0].isRevealed());
-        Assert.assertEquals(false, cells[1][1].isRevealed());
-        Assert.assertEquals(false, cells[0][2].isRevealed());
-        Assert.assertEquals(false, cells[1][2].isRevealed());
-        Assert.assertEquals(false, cells[2][0].isRevealed());
-        Assert.assertEquals(false, cells[2][1].isRevealed());
-        Assert.assertEquals(false, cells[2][2].isRevealed());
+        grid.revealCells(1, 0);
+
+        Assert.assertEquals(false, grid.isRevealed(0, 0));
+        Assert.assertEquals(true, grid.isRevealed(1, 0));
+        Assert.assertEquals(false, grid.isRevealed(0, 1));
+        Assert.assertEquals(false, grid.isRevealed(1, 1));
+        Assert.assertEquals(false, grid.isRevealed(2, 0));
+        Assert.assertEquals(false, grid.isRevealed(2, 1));
+        Assert.assertEquals(false, grid.isRevealed(0, 2));
+        Assert.assertEquals(false, grid.isRevealed(1, 2));
+        Assert.assertEquals(false, grid.isRevealed(2, 2));
 
     }
 
     @Test
     public void testRevealMoreThanOneCell() {
-        Cell[][] squareGrid = createSquareGrid();
-        grid.setCells(squareGrid);
-        grid.getCells()[0][0].setContainsMine(true);
+        createSquareGrid();
+        grid.setMineInCell(0, 0, true);
         grid.setRemainingEmptyCell(8);
 
         grid.calculateMineAroundNumber();
         grid.revealCells(2, 2);
 
-        Cell[][] cells = grid.getCells();
+        Assert.assertEquals(false, grid.isRevealed(0, 0));
+        Assert.assertEquals(true, grid.isRevealed(1, 0));
+        Assert.assertEquals(true, grid.isRevealed(0, 1));
+        Assert.assertEquals(true, grid.isRevealed(1, 1));
+        Assert.assertEquals(true, grid.isRevealed(2, 0));
+        Assert.assertEquals(true, grid.isRevealed(2, 1));
+        Assert.assertEquals(true, grid.isRevealed(0, 2));
+        Assert.assertEquals(true, grid.isRevealed(1, 2));
+        Assert.assertEquals(true, grid.isRevealed(2, 2));
+
+    }
+
+    @Test
+    public void testRevealCellsReturnsRevealedNumber() {
+        createSquareGrid();
+        grid.setMineInCell(0, 0, true);
+        grid.setRemainingEmptyCell(8);
+
+        grid.calculateMineAroundNumber();
+
+        Assert.assertEquals(1, grid.revealCells(1, 0));
+        Assert.assertEquals(0, grid.revealCells(1, 0));
+        Assert.assertEquals(7, grid.revealCells(2, 2));
+        Assert.assertEquals(0, grid.getRemainingEmptyCell());
+    }
+
+    @Test
+    public void testRevealLargeOpenArea() {
+        Grid largeGrid = new Grid(1000, 1000, 0);
+        largeGrid.calculateMineAroundNumber();
+
+        int revealed = largeGrid.revealCells(500, 500);
 
-        Assert.assertEquals(false, cells[0][0].isRevealed());
-        Assert.assertEquals(true, cells[0][1].isRevealed());
-        Assert.assertEquals(true, cells[1][0].isRevealed());
-        Assert.assertEquals(true, cells[1][1].isRevealed());
-        Assert.assertEquals(true, cells[0][2].isRevealed());
-        Assert.assertEquals(true, cells[1][2].isRevealed());
-        Assert.assertEquals(true, cells[2][0].isRevealed());
-        Assert.assertEquals(true, cells[2][1].isRevealed());
-        Assert.assertEquals(true, cells[2][2].isRevealed());
+        Assert.assertEquals(1000 * 1000, revealed);
+        Assert.assertEquals(0, largeGrid.getRemainingEmptyCell());
+    }
 
+    @Test
+    public void testRevealCellsParallelSameAsSequential() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Grid sequentialGrid = new Grid(1500, 1000, 3000, 11L);
+            Grid parallelGrid = new Grid(1500, 1000, 3000, 11L);
+            sequentialGrid.placeMines(700, 500);
+            parallelGrid.placeMines(700, 500);
+            sequentialGrid.calculateMineAroundNumber();
+            parallelGrid.calculateMineAroundNumber();
+            parallelGrid.toggleFlag(10, 10);
+            sequentialGrid.toggleFlag(10, 10);
+
+            int expectedRevealed = sequentialGrid.revealCells(700, 500);
+            int revealed = parallelGrid.revealCells(700, 500, pool);
+
+            Assert.assertTrue(revealed > 100000);
+            Assert.assertEquals(expectedRevealed, revealed);
+            Assert.assertEquals(sequentialGrid.getRemainingEmptyCell(), parallelGrid.getRemainingEmptyCell());
+            Assert.assertArrayEquals(sequentialGrid.getCells(), parallelGrid.getCells());
+            int[] expectedQueue = Arrays.copyOf(sequentialGrid.getRevealQueue(), revealed);
+            int[] queue = Arrays.copyOf(parallelGrid.getRevealQueue(), revealed);
+            Arrays.sort(expectedQueue);
+            Arrays.sort(queue);
+            Assert.assertArrayEquals(expectedQueue, queue);
+
+            // The bitset is cleared, a second fill on the same grid still visits its area
+            int expectedSecond = 0;
+            int second = 0;
+            for (int index = 0; index < sequentialGrid.getCells().length && expectedSecond == 0; index++) {
+                if (!sequentialGrid.isRevealed(sequentialGrid.widthOf(index), sequentialGrid.heightOf(index))
+                        && !sequentialGrid.isMineInCell(sequentialGrid.widthOf(index), sequentialGrid.heightOf(index))) {
+                    expectedSecond = sequentialGrid.revealCells(sequentialGrid.widthOf(index),
+                            sequentialGrid.heightOf(index));
+                    second = parallelGrid.revealCells(parallelGrid.widthOf(index), parallelGrid.heightOf(index), pool);
+                }
+            }
+            Assert.assertEquals(expectedSecond, second);
+            Assert.assertArrayEquals(sequentialGrid.getCells(), parallelGrid.getCells());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testRevealCellsParallelMineAndFlag() {
+        createSquareGrid();
+        grid.setMineInCell(0, 0, true);
+        grid.setRemainingEmptyCell(8);
+        grid.calculateMineAroundNumber();
+        grid.toggleFlag(2, 2);
+
+        Assert.assertEquals(0, grid.revealCells(2, 2, ForkJoinPool.commonPool()));
+        Assert.assertEquals(1, grid.revealCells(0, 0, ForkJoinPool.commonPool()));
+        Assert.assertEquals(8, grid.getRemainingEmptyCell());
+        Assert.assertEquals(7, grid.revealCells(2, 1, ForkJoinPool.commonPool()));
+        Assert.assertEquals(1, grid.getRemainingEmptyCell());
+        Assert.assertFalse(grid.isRevealed(2, 2));
     }
 
 
     @Test
     public void testPlaceMines() {
-        Cell[][] squareGrid = createSquareGrid();
-        grid.setCells(squareGrid);
+        createSquareGrid();
         grid.setNumberOfMines(2);
 
         grid.placeMines();
 
-        List<Cell> cellListFromCellArray = getCellListFromCellArray(grid.getCells(), 3, 3);
-
         int mineCount = 0;
 
-        for (Cell c : cellListFromCellArray) {
-            if (c.isContainsMine()) {
-                mineCount++;
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                if (grid.isMineInCell(j, i)) {
+                    mineCount++;
+                }
             }
         }
 
         Assert.assertEquals(2, mineCount);
     }
 
-    private List<Cell> getCellListFromCellArray(Cell[][] array, int height, int width) {
-        List<Cell> cellsList = new ArrayList<Cell>();
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                cellsList.add(array[i][j]);
+    @Test
+    public void testIsSeedReproducible() {
+        Grid seededGrid = new Grid(8, 6, 10, 1L);
+        Assert.assertFalse(seededGrid.isSeedReproducible());
+
+        seededGrid.placeMines();
+        Assert.assertTrue(seededGrid.isSeedReproducible());
+
+        seededGrid.setMineInCell(0, 0, !seededGrid.isMineInCell(0, 0));
+        Assert.assertFalse(seededGrid.isSeedReproducible());
+
+        seededGrid.reset(2L);
+        seededGrid.placeMines(3, 3);
+        Assert.assertFalse(seededGrid.isSeedReproducible());
+    }
+
+    @Test
+    public void testPlaceMinesDenseGrid() {
+        createSquareGrid();
+        grid.setNumberOfMines(8);
+
+        grid.placeMines();
+
+        int mineCount = 0;
+        for (byte cell : grid.getCells()) {
+            if ((cell & Grid.MINE) != 0) {
+                mineCount++;
             }
         }
 
-        return cellsList;
+        Assert.assertEquals(8, mineCount);
     }
 
-    private Cell[][] createSquareGrid() {
-        int gridHeight = 3;
-        int gridWidth = 3;
-        grid.setGridWidth(3);
-        grid.setGridHeight(3);
+    @Test
+    public void testPlaceMinesSameSeedSameGrid() {
+        Grid firstGrid = new Grid(30, 16, 99, 42L);
+        Grid secondGrid = new Grid(30, 16, 99, 42L);
 
-        Cell[][] cells = new Cell[gridHeight][gridWidth];
-        for (int i = 0; i < gridHeight; i++) {
-            for (int j = 0; j < gridWidth; j++) {
-                cells[i][j] = new Cell(j, i);
-            }
+        firstGrid.placeMines();
+        secondGrid.placeMines();
+
+        Assert.assertEquals(42L, firstGrid.getSeed());
+        Assert.assertArrayEquals(firstGrid.getCells(), secondGrid.getCells());
+    }
+
+    @Test
+    public void testPlaceMinesKeepsFirstCellFree() {
+        for (long seed = 0; seed < 50; seed++) {
+            Grid smallGrid = new Grid(4, 4, 7, seed);
+
+            smallGrid.placeMines(2, 1);
+            smallGrid.calculateMineAroundNumber();
+
+            Assert.assertEquals(0, smallGrid.getMineAroundNumber(2, 1));
+            Assert.assertFalse(smallGrid.isMineInCell(2, 1));
         }
-        return cells;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPlaceMinesFailedFirstCellCantBeFree() {
+        Grid smallGrid = new Grid(3, 3, 1);
+
+        smallGrid.placeMines(1, 1);
+    }
+
+    @Test
+    public void testReset() {
+        Grid firstGrid = new Grid(8, 6, 10, 1L);
+        firstGrid.placeMines();
+        firstGrid.calculateMineAroundNumber();
+        firstGrid.revealCells(0, 0);
+        Grid secondGrid = new Grid(8, 6, 10, 2L);
+        secondGrid.placeMines();
+
+        firstGrid.reset(2L);
+        firstGrid.placeMines();
+
+        Assert.assertEquals(38, firstGrid.getRemainingEmptyCell());
+        Assert.assertArrayEquals(secondGrid.getCells(), firstGrid.getCells());
+    }
+
+    @Test
+    public void testResetWithMineNumber() {
+        Grid firstGrid = new Grid(8, 6, 10, 1L);
+        firstGrid.placeMines();
+        firstGrid.calculateMineAroundNumber();
+        firstGrid.toggleFlag(7, 5);
+        firstGrid.revealCells(0, 0);
+        byte[] cells = firstGrid.getCells();
+        Grid secondGrid = new Grid(8, 6, 20, 2L);
+        secondGrid.placeMines();
+        secondGrid.calculateMineAroundNumber();
+
+        firstGrid.reset(2L, 20);
+        firstGrid.placeMines();
+        firstGrid.calculateMineAroundNumber();
+
+        Assert.assertSame(cells, firstGrid.getCells());
+        Assert.assertEquals(20, firstGrid.getNumberOfMines());
+        Assert.assertEquals(28, firstGrid.getRemainingEmptyCell());
+        Assert.assertEquals(0, firstGrid.getFlagAroundNumber(6, 4));
+        Assert.assertArrayEquals(secondGrid.getCells(), firstGrid.getCells());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testResetFailedTooManyMines() {
+        Grid firstGrid = new Grid(8, 6, 10, 1L);
+
+        firstGrid.reset(2L, 49);
+    }
+
+    @Test
+    public void testResetSameMineRangeAsConstructor() {
+        Grid firstGrid = new Grid(8, 6, 10, 1L);
+
+        firstGrid.reset(2L, 0);
+
+        Assert.assertEquals(48, firstGrid.getRemainingEmptyCell());
+        Assert.assertEquals(0, new Grid(8, 6, 0, 2L).getNumberOfMines());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGridFailedNegativeMineNumber() {
+        new Grid(8, 6, -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGridFailedTooManyCells() {
+        new Grid(65537, 65536, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGridFailedNegativeDimension() {
+        new Grid(-3, 4, 1);
+    }
+
+    @Test
+    public void testOneBytePerCell() {
+        Grid largeGrid = new Grid(400, 300, 10);
+
+        Assert.assertEquals(400 * 300, largeGrid.getCells().length);
+    }
 
+    @Test
+    public void testGetCellIsDetachedCopy() {
+        createSquareGrid();
+        grid.setMineInCell(2, 1, true);
+
+        Cell cell = grid.getCell(2, 1);
+        cell.setContainsMine(false);
+
+        Assert.assertEquals(2, cell.getWidthCoordinate());
+        Assert.assertEquals(1, cell.getHeightCoordinate());
+        Assert.assertEquals(true, grid.isMineInCell(2, 1));
+    }
+
+    @Test
+    public void testToggleFlagUpdatesCounters() {
+        Grid flagGrid = new Grid(4, 3, 2);
+
+        Assert.assertTrue(flagGrid.toggleFlag(1, 1));
+        Assert.assertTrue(flagGrid.toggleFlag(2, 0));
+
+        Assert.assertTrue(flagGrid.isFlagged(1, 1));
+        Assert.assertEquals(2, flagGrid.getFlagAroundNumber(1, 0));
+        Assert.assertEquals(1, flagGrid.getFlagAroundNumber(0, 2));
+        Assert.assertEquals(2, flagGrid.getFlagAroundNumber(2, 1));
+        Assert.assertEquals(1, flagGrid.getFlagAroundNumber(1, 1));
+        Assert.assertEquals(1, flagGrid.getFlagAroundNumber(3, 0));
+
+        Assert.assertTrue(flagGrid.toggleFlag(1, 1));
+
+        Assert.assertFalse(flagGrid.isFlagged(1, 1));
+        Assert.assertEquals(1, flagGrid.getFlagAroundNumber(1, 0));
+        Assert.assertEquals(0, flagGrid.getFlagAroundNumber(0, 2));
+    }
+
+    @Test
+    public void testToggleFlagRevealedCellIgnored() {
+        createSquareGrid();
+        grid.setRemainingEmptyCell(9);
+        grid.revealCells(0, 0);
+
+        Assert.assertFalse(grid.toggleFlag(0, 0));
+        Assert.assertFalse(grid.isFlagged(0, 0));
+    }
+
+    @Test
+    public void testRevealSkipsFlaggedCells() {
+        createSquareGrid();
+        grid.setNumberOfMines(0);
+        grid.setRemainingEmptyCell(9);
+        grid.toggleFlag(2, 2);
+
+        Assert.assertEquals(0, grid.revealCells(2, 2));
+        Assert.assertEquals(8, grid.revealCells(0, 0));
+        Assert.assertFalse(grid.isRevealed(2, 2));
+    }
+
+    @Test
+    public void testChordNominal() {
+        // Mine in the upper left corner, flagged, chord on the center
+        createSquareGrid();
+        grid.setMineInCell(0, 0, true);
+        grid.calculateMineAroundNumber();
+        grid.setRemainingEmptyCell(8);
+        grid.revealCells(1, 1);
+        grid.toggleFlag(0, 0);
+
+        Assert.assertEquals(7, grid.chord(1, 1));
+        Assert.assertEquals(0, grid.getRemainingEmptyCell());
+        Assert.assertFalse(grid.isRevealed(0, 0));
+    }
+
+    @Test
+    public void testChordNotEnoughFlags() {
+        createSquareGrid();
+        grid.setMineInCell(0, 0, true);
+        grid.calculateMineAroundNumber();
+        grid.setRemainingEmptyCell(8);
+        grid.revealCells(1, 1);
+
+        Assert.assertEquals(0, grid.chord(1, 1));
+        Assert.assertEquals(0, grid.chord(2, 2));
+    }
+
+    private void createSquareGrid() {
+        grid.setGridWidth(3);
+        grid.setGridHeight(3);
+        grid.setCells(new byte[3 * 3]);
     }
 
 }
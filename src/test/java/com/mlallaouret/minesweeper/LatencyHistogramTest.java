@@ -0,0 +1,47 @@
+package com.mlallaouret.minesweeper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketBounds() {
+        for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 33, 1000, 123456789, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            Assert.assertTrue(bucket < LatencyHistogram.BUCKET_NUMBER);
+            Assert.assertTrue(LatencyHistogram.lowestValueOf(bucket) <= value);
+            Assert.assertTrue(value - LatencyHistogram.lowestValueOf(bucket) <= value / LatencyHistogram.SUB_BUCKETS);
+            if (bucket + 1 < LatencyHistogram.BUCKET_NUMBER) {
+                Assert.assertTrue(LatencyHistogram.lowestValueOf(bucket + 1) > value);
+            }
+        }
+    }
+
+    @Test
+    public void testSnapshotNominal() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+
+        Assert.assertEquals(1000, snapshot.getCount());
+        Assert.assertEquals(500500, snapshot.getSum());
+        Assert.assertEquals(1000, snapshot.getMax());
+        Assert.assertEquals(500.5, snapshot.getMean(), 1e-9);
+        Assert.assertEquals(500, snapshot.getP50(), 500 / LatencyHistogram.SUB_BUCKETS);
+        Assert.assertEquals(990, snapshot.getP99(), 990 / LatencyHistogram.SUB_BUCKETS);
+        Assert.assertEquals(1000, snapshot.getValueAtPercentile(100), 1000 / LatencyHistogram.SUB_BUCKETS);
+    }
+
+    @Test
+    public void testEmptySnapshot() {
+        HistogramSnapshot snapshot = new LatencyHistogram().snapshot();
+
+        Assert.assertEquals(0, snapshot.getCount());
+        Assert.assertEquals(0, snapshot.getMean(), 0);
+        Assert.assertEquals(0, snapshot.getP99());
+    }
+}
@@ -0,0 +1,63 @@
+package com.mlallaouret.minesweeper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Run by the metrics-enabled surefire execution only, in its own JVM started with -Dminesweeper.metrics=true, so the
+ * values recorded are the ones of this test
+ */
+public class MetricsEnabledTest {
+
+    @Test
+    public void testRecordedValues() throws Exception {
+        Assert.assertTrue(Metrics.isEnabled());
+        // 99 single cell games then a game opening 100 cells at once
+        for (int i = 0; i < 99; i++) {
+            Assert.assertEquals(MoveResult.WON, GameEngine.newGame(1, 1, 0, i).reveal(0, 0));
+        }
+        GameEngine largeGame = GameEngine.newGame(10, 10, 0, 1L);
+        Assert.assertEquals(MoveResult.WON, largeGame.reveal(5, 5));
+        render(largeGame.getGrid());
+
+        MetricsSnapshot snapshot = Metrics.snapshot();
+
+        Assert.assertEquals(100, snapshot.getMoves());
+        Assert.assertEquals(100, snapshot.getGenerationNanos().getCount());
+        Assert.assertEquals(100, snapshot.getCountingNanos().getCount());
+        Assert.assertEquals(100, snapshot.getRevealNanos().getCount());
+        Assert.assertEquals(1, snapshot.getRenderNanos().getCount());
+        HistogramSnapshot revealedCells = snapshot.getRevealedCells();
+        Assert.assertEquals(100, revealedCells.getCount());
+        Assert.assertEquals(199, revealedCells.getSum());
+        Assert.assertEquals(100, revealedCells.getMax());
+        Assert.assertEquals(1.99, revealedCells.getMean(), 1e-9);
+        Assert.assertEquals(1, revealedCells.getP50());
+        Assert.assertEquals(1, revealedCells.getP99());
+        Assert.assertEquals(100, revealedCells.getValueAtPercentile(100));
+        Assert.assertTrue(snapshot.getRevealNanos().getP50() > 0);
+        Assert.assertTrue(snapshot.getRevealNanos().getP99() <= snapshot.getRevealNanos().getMax());
+
+        Metrics.registerMBean();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(Metrics.OBJECT_NAME);
+        Assert.assertEquals(Boolean.TRUE, server.getAttribute(name, "Enabled"));
+        Assert.assertEquals(100L, server.getAttribute(name, "Moves"));
+        CompositeData mbeanRevealedCells = (CompositeData) server.getAttribute(name, "RevealedCells");
+        Assert.assertEquals(100L, mbeanRevealedCells.get("count"));
+        Assert.assertEquals(199L, mbeanRevealedCells.get("sum"));
+        Assert.assertEquals(1L, mbeanRevealedCells.get("p99"));
+        Assert.assertEquals(100L, mbeanRevealedCells.get("max"));
+    }
+
+    private static void render(Grid grid) throws IOException {
+        new GridRenderer().render(grid, new ByteArrayOutputStream());
+    }
+}
@@ -0,0 +1,38 @@
+package com.mlallaouret.minesweeper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+
+public class MetricsTest {
+
+    @Test
+    public void testSnapshotNominal() {
+        MetricsSnapshot first = Metrics.snapshot();
+        GameEngine gameEngine = GameEngine.newGame(9, 9, 10, 1L);
+        gameEngine.reveal(0, 0);
+        MetricsSnapshot second = Metrics.snapshot();
+
+        Assert.assertEquals(Metrics.isEnabled(), second.getMoves() > first.getMoves());
+        Assert.assertEquals(Metrics.isEnabled(), second.getRevealedCells().getCount() > 0);
+        Assert.assertTrue(second.getTimestamp() >= first.getTimestamp());
+        Assert.assertTrue(second.getMovesPerSecondSince(first) >= 0);
+    }
+
+    @Test
+    public void testRegisterMBean() throws Exception {
+        Metrics.registerMBean();
+        Metrics.registerMBean();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(Metrics.OBJECT_NAME);
+        Assert.assertEquals(Metrics.isEnabled(), server.getAttribute(name, "Enabled"));
+        CompositeData reveal = (CompositeData) server.getAttribute(name, "RevealNanos");
+        Assert.assertTrue(reveal.containsKey("p99"));
+        Assert.assertTrue(server.getAttribute(name, "MovesPerSecond") instanceof Double);
+    }
+}
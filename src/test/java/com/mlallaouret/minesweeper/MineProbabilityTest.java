@@ -0,0 +1,146 @@
+package com.mlallaouret.minesweeper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+public class MineProbabilityTest {
+
+    private static final double DELTA = 1e-9;
+
+    private MineProbability mineProbability = new MineProbability(ForkJoinPool.commonPool());
+
+    @Test
+    public void testDeducedCells() {
+        Grid grid = new Grid(5, 3, 2);
+        grid.setMineInCell(1, 0, true);
+        grid.setMineInCell(3, 0, true);
+        grid.calculateMineAroundNumber();
+        Solver solver = new Solver(grid);
+        solver.reveal(0, 2);
+
+        double[] probabilities = mineProbability.computeProbabilities(solver);
+
+        Assert.assertEquals(0, probabilities[grid.indexOf(0, 0)], DELTA);
+        Assert.assertEquals(1, probabilities[grid.indexOf(1, 0)], DELTA);
+        Assert.assertEquals(0, probabilities[grid.indexOf(2, 0)], DELTA);
+        Assert.assertEquals(1, probabilities[grid.indexOf(3, 0)], DELTA);
+        Assert.assertEquals(0, probabilities[grid.indexOf(2, 1)], DELTA);
+    }
+
+    @Test
+    public void testEquallyLikelyCells() {
+        Grid grid = new Grid(2, 2, 1);
+        grid.setMineInCell(0, 0, true);
+        grid.calculateMineAroundNumber();
+        Solver solver = new Solver(grid);
+        solver.reveal(1, 1);
+
+        double[] probabilities = mineProbability.computeProbabilities(solver);
+
+        Assert.assertEquals(1.0 / 3, probabilities[grid.indexOf(0, 0)], DELTA);
+        Assert.assertEquals(1.0 / 3, probabilities[grid.indexOf(1, 0)], DELTA);
+        Assert.assertEquals(1.0 / 3, probabilities[grid.indexOf(0, 1)], DELTA);
+        Assert.assertEquals(0, probabilities[grid.indexOf(1, 1)], DELTA);
+    }
+
+    @Test
+    public void testNothingRevealed() {
+        Grid grid = new Grid(4, 5, 7);
+        Solver solver = new Solver(grid);
+
+        double[] probabilities = mineProbability.computeProbabilities(solver);
+
+        for (double probability : probabilities) {
+            Assert.assertEquals(7.0 / 20, probability, DELTA);
+        }
+    }
+
+    @Test
+    public void testSameAsBruteForce() {
+        for (long seed = 0; seed < 40; seed++) {
+            Grid grid = new Grid(5, 5, 6, seed);
+            grid.placeMines();
+            grid.calculateMineAroundNumber();
+            Solver solver = new Solver(grid);
+            int firstCell = 0;
+            while (grid.isMineInCell(grid.widthOf(firstCell), grid.heightOf(firstCell))) {
+                firstCell++;
+            }
+            solver.reveal(grid.widthOf(firstCell), grid.heightOf(firstCell));
+            solver.solve();
+
+            double[] probabilities = mineProbability.computeProbabilities(solver);
+
+            double[] expectedProbabilities = bruteForceProbabilities(grid);
+            Assert.assertArrayEquals(expectedProbabilities, probabilities, DELTA);
+        }
+    }
+
+    @Test
+    public void testSafestCell() {
+        Grid grid = new Grid(5, 3, 2);
+        grid.setMineInCell(1, 0, true);
+        grid.setMineInCell(3, 0, true);
+        grid.calculateMineAroundNumber();
+        Solver solver = new Solver(grid);
+        solver.reveal(0, 2);
+
+        int safestCell = mineProbability.findSafestCell(solver);
+
+        Assert.assertFalse(grid.isMineInCell(grid.widthOf(safestCell), grid.heightOf(safestCell)));
+    }
+
+    /**
+     * Try every placement of the mines on the hidden cells and keep those matching the revealed numbers
+     */
+    private double[] bruteForceProbabilities(Grid grid) {
+        byte[] cells = grid.getCells();
+        int[] hiddenCells = new int[cells.length];
+        int hiddenNumber = 0;
+        for (int index = 0; index < cells.length; index++) {
+            if ((cells[index] & Grid.REVEALED) == 0) {
+                hiddenCells[hiddenNumber++] = index;
+            }
+        }
+        double[] mineCounts = new double[cells.length];
+        double valid = 0;
+        int[] neighbours = new int[8];
+        for (long placement = 0; placement < 1L << hiddenNumber; placement++) {
+            if (Long.bitCount(placement) != grid.getNumberOfMines()) {
+                continue;
+            }
+            boolean[] mines = new boolean[cells.length];
+            for (int i = 0; i < hiddenNumber; i++) {
+                mines[hiddenCells[i]] = (placement & (1L << i)) != 0;
+            }
+            boolean matches = true;
+            for (int index = 0; index < cells.length && matches; index++) {
+                if ((cells[index] & Grid.REVEALED) == 0) {
+                    continue;
+                }
+                int count = 0;
+                int neighbourNumber = grid.getNeighbourIndexes(index, neighbours);
+                for (int i = 0; i < neighbourNumber; i++) {
+                    if (mines[neighbours[i]]) {
+                        count++;
+                    }
+                }
+                matches = count == (cells[index] & Grid.MINE_AROUND_MASK);
+            }
+            if (matches) {
+                valid++;
+                for (int index = 0; index < cells.length; index++) {
+                    if (mines[index]) {
+                        mineCounts[index]++;
+                    }
+                }
+            }
+        }
+        for (int index = 0; index < cells.length; index++) {
+            mineCounts[index] /= valid;
+        }
+        return mineCounts;
+    }
+}
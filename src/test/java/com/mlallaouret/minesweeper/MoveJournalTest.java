@@ -0,0 +1,254 @@
+package com.mlallaouret.minesweeper;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+public class MoveJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReplayNominal() throws IOException {
+        Path path = folder.newFile().toPath();
+        GameEngine gameEngine = GameEngine.newGame(30, 16, 20, 42L);
+        MoveJournal journal = MoveJournal.create(path, gameEngine.getGrid());
+        gameEngine.addListener(journal);
+        SplittableRandom random = new SplittableRandom(1L);
+        while (gameEngine.status() == GameStatus.PLAYING) {
+            gameEngine.reveal(random.nextInt(30), random.nextInt(16));
+        }
+        journal.close();
+
+        GameEngine replayed = MoveJournal.replay(path);
+
+        Assert.assertEquals(gameEngine.status(), replayed.status());
+        Assert.assertArrayEquals(gameEngine.getGrid().getCells(), replayed.getGrid().getCells());
+        Assert.assertEquals(MoveJournal.HEADER_SIZE + journal.getMoveNumber() * MoveJournal.RECORD_SIZE,
+                Files.size(path));
+    }
+
+    @Test
+    public void testReplayFlagsAndChords() throws IOException {
+        Path path = folder.newFile().toPath();
+        GameEngine gameEngine = GameEngine.newGame(30, 16, 60, 5L);
+        MoveJournal journal = MoveJournal.create(path, gameEngine.getGrid());
+        gameEngine.addListener(journal);
+        SplittableRandom random = new SplittableRandom(2L);
+        for (int move = 0; move < 2000 && gameEngine.status() == GameStatus.PLAYING; move++) {
+            int x = random.nextInt(30);
+            int y = random.nextInt(16);
+            int type = random.nextInt(3);
+            if (type == 0) {
+                gameEngine.flag(x, y);
+            } else if (type == 1) {
+                gameEngine.chord(x, y);
+            } else if (!gameEngine.getGrid().isMineInCell(x, y)) {
+                gameEngine.reveal(x, y);
+            }
+        }
+        journal.close();
+
+        GameEngine replayed = MoveJournal.replay(path);
+
+        Assert.assertEquals(gameEngine.status(), replayed.status());
+        Assert.assertArrayEquals(gameEngine.getGrid().getCells(), replayed.getGrid().getCells());
+    }
+
+    @Test
+    public void testReplayUndoAndRedo() throws IOException {
+        Path path = folder.newFile().toPath();
+        GameEngine gameEngine = GameEngine.newGame(30, 16, 60, 7L);
+        gameEngine.enableHistory();
+        MoveJournal journal = MoveJournal.create(path, gameEngine.getGrid());
+        gameEngine.addListener(journal);
+        SplittableRandom random = new SplittableRandom(3L);
+        for (int move = 0; move < 500; move++) {
+            int type = random.nextInt(5);
+            if (type == 0) {
+                gameEngine.undo();
+            } else if (type == 1) {
+                gameEngine.redo();
+            } else if (type == 2) {
+                gameEngine.flag(random.nextInt(30), random.nextInt(16));
+            } else {
+                gameEngine.reveal(random.nextInt(30), random.nextInt(16));
+            }
+        }
+        // The last move is undone, its cells must be hidden again after the replay
+        gameEngine.reveal(0, 0);
+        gameEngine.undo();
+        journal.close();
+
+        GameEngine replayed = MoveJournal.replay(path);
+
+        Assert.assertEquals(gameEngine.status(), replayed.status());
+        Assert.assertEquals(gameEngine.getGrid().getRemainingEmptyCell(), replayed.getGrid().getRemainingEmptyCell());
+        Assert.assertArrayEquals(gameEngine.getGrid().getCells(), replayed.getGrid().getCells());
+    }
+
+    @Test
+    public void testReplayVersion1() throws IOException {
+        Path path = folder.newFile().toPath();
+        GameEngine gameEngine = GameEngine.newGame(9, 9, 10, 5L);
+        int index = firstEmptyCell(gameEngine.getGrid());
+        gameEngine.reveal(index % 9, index / 9);
+        writeJournal(path, MoveJournal.FIRST_VERSION, 9, 9, 10, 0, 5L, null, MoveJournal.REVEAL, index);
+
+        GameEngine replayed = MoveJournal.replay(path);
+
+        Assert.assertArrayEquals(gameEngine.getGrid().getCells(), replayed.getGrid().getCells());
+    }
+
+    @Test(expected = IOException.class)
+    public void testReplayVersion1FailedUndoRecord() throws IOException {
+        Path path = folder.newFile().toPath();
+        writeJournal(path, MoveJournal.FIRST_VERSION, 9, 9, 10, 0, 5L, null, MoveJournal.UNDO, 0);
+
+        MoveJournal.replay(path);
+    }
+
+    @Test
+    public void testReplayVersion2() throws IOException {
+        Path path = folder.newFile().toPath();
+        GameEngine gameEngine = GameEngine.newGame(9, 9, 10, 5L);
+        gameEngine.enableHistory();
+        int index = firstEmptyCell(gameEngine.getGrid());
+        gameEngine.flag(index % 9, index / 9);
+        gameEngine.flag(index % 9, index / 9);
+        gameEngine.reveal(index % 9, index / 9);
+        gameEngine.undo();
+        gameEngine.undo();
+        gameEngine.redo();
+        // The field of the header flags was reserved, a layout flag in it is not read
+        writeJournal(path, MoveJournal.UNDO_VERSION, 9, 9, 10, MoveJournal.MINE_LAYOUT, 5L, null,
+                MoveJournal.FLAG, index, MoveJournal.FLAG, index, MoveJournal.REVEAL, index,
+                MoveJournal.UNDO, 0, MoveJournal.UNDO, 0, MoveJournal.REDO, 0);
+
+        GameEngine replayed = MoveJournal.replay(path);
+
+        Assert.assertArrayEquals(gameEngine.getGrid().getCells(), replayed.getGrid().getCells());
+        Assert.assertEquals(gameEngine.getGrid().getRemainingEmptyCell(), replayed.getGrid().getRemainingEmptyCell());
+    }
+
+    @Test
+    public void testReplayVersion3() throws IOException {
+        Path path = folder.newFile().toPath();
+        // A single mine in the last cell of a 3x3 grid
+        writeJournal(path, MoveJournal.MINE_LAYOUT_VERSION, 3, 3, 1, MoveJournal.MINE_LAYOUT, 5L,
+                new byte[]{0, 1}, MoveJournal.REVEAL, 0);
+
+        GameEngine replayed = MoveJournal.replay(path);
+
+        Assert.assertTrue(replayed.getGrid().isMineInCell(2, 2));
+        Assert.assertEquals(1, replayed.getGrid().getMineAroundNumber(1, 1));
+        Assert.assertEquals(GameStatus.WON, replayed.status());
+    }
+
+    @Test(expected = IOException.class)
+    public void testReplayFailedUnsupportedVersion() throws IOException {
+        Path path = folder.newFile().toPath();
+        writeJournal(path, MoveJournal.VERSION + 1, 9, 9, 10, 0, 5L, null, MoveJournal.REVEAL, 0);
+
+        MoveJournal.replay(path);
+    }
+
+    @Test
+    public void testReplayGridNotReproducibleFromSeed() throws IOException {
+        Path path = folder.newFile().toPath();
+        Grid grid = new NoGuessGenerator(30, 16, 99).generate(15, 8, 42L);
+        Assert.assertFalse(grid.isSeedReproducible());
+        GameEngine gameEngine = new GameEngine(grid);
+        MoveJournal journal = MoveJournal.create(path, grid);
+        gameEngine.addListener(journal);
+        gameEngine.reveal(15, 8);
+        journal.close();
+
+        GameEngine replayed = MoveJournal.replay(path);
+
+        Assert.assertEquals(MoveJournal.HEADER_SIZE + (30 * 16 + 7) / 8 + MoveJournal.RECORD_SIZE, Files.size(path));
+        Assert.assertArrayEquals(gameEngine.getGrid().getCells(), replayed.getGrid().getCells());
+        Assert.assertEquals(grid.getRemainingEmptyCell(), replayed.getGrid().getRemainingEmptyCell());
+    }
+
+    @Test
+    public void testReplayFirstMoves() throws IOException {
+        Path path = folder.newFile().toPath();
+        GameEngine gameEngine = GameEngine.newGame(9, 9, 10, 3L);
+        MoveJournal journal = MoveJournal.create(path, gameEngine.getGrid());
+        gameEngine.addListener(journal);
+        Grid grid = gameEngine.getGrid();
+        int moves = 0;
+        byte[] cellsAfterTwoMoves = null;
+        for (int index = 0; index < 81 && gameEngine.status() == GameStatus.PLAYING; index++) {
+            if (!grid.isMineInCell(index % 9, index / 9) && gameEngine.reveal(index % 9, index / 9)
+                    != MoveResult.IGNORED && ++moves == 2) {
+                cellsAfterTwoMoves = grid.getCells().clone();
+            }
+        }
+        journal.flush();
+
+        Assert.assertArrayEquals(cellsAfterTwoMoves, MoveJournal.replay(path, 2).getGrid().getCells());
+        Assert.assertEquals(GameStatus.WON, MoveJournal.replay(path).status());
+        journal.close();
+    }
+
+    @Test
+    public void testReplayIgnoresCutRecord() throws IOException {
+        Path path = folder.newFile().toPath();
+        GameEngine gameEngine = GameEngine.newGame(9, 9, 10, 3L);
+        MoveJournal journal = MoveJournal.create(path, gameEngine.getGrid());
+        gameEngine.addListener(journal);
+        gameEngine.reveal(0, 0);
+        journal.close();
+        byte[] content = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(content, content.length + 3));
+
+        Assert.assertArrayEquals(gameEngine.getGrid().getCells(), MoveJournal.replay(path).getGrid().getCells());
+    }
+
+    @Test(expected = IOException.class)
+    public void testReplayFailedNotJournal() throws IOException {
+        Path path = folder.newFile().toPath();
+        Files.write(path, new byte[MoveJournal.HEADER_SIZE]);
+
+        MoveJournal.replay(path);
+    }
+
+    private static int firstEmptyCell(Grid grid) {
+        int index = 0;
+        while (grid.isMineInCell(index % grid.getGridWidth(), index / grid.getGridWidth())) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Write a journal of any version, the records being given as type and cell index pairs
+     */
+    private static void writeJournal(Path path, int version, int gridWidth, int gridHeight, int numberOfMines,
+                                     int flags, long seed, byte[] mineLayout, int... records) throws IOException {
+        int layoutSize = mineLayout == null ? 0 : mineLayout.length;
+        ByteBuffer buffer = ByteBuffer.allocate(MoveJournal.HEADER_SIZE + layoutSize
+                + records.length / 2 * MoveJournal.RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MoveJournal.MAGIC).putInt(version).putInt(gridWidth).putInt(gridHeight).putInt(numberOfMines)
+                .putInt(flags).putLong(seed);
+        if (mineLayout != null) {
+            buffer.put(mineLayout);
+        }
+        for (int i = 0; i < records.length; i += 2) {
+            buffer.put((byte) records[i]).putInt(records[i + 1]);
+        }
+        Files.write(path, buffer.array());
+    }
+}
@@ -0,0 +1,65 @@
+package com.mlallaouret.minesweeper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class NoGuessGeneratorTest {
+
+    @Test
+    public void testGenerateNominal() {
+        NoGuessGenerator generator = new NoGuessGenerator(30, 16, 99);
+
+        Grid grid = generator.generate(15, 8, 42L);
+
+        Assert.assertArrayEquals(grid.getCells(), generator.generate(15, 8, 42L).getCells());
+        assertSolvableWithoutGuess(grid, 8, 15);
+    }
+
+    @Test
+    public void testGenerateParallelNominal() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            NoGuessGenerator generator = new NoGuessGenerator(30, 16, 99);
+
+            Grid grid = generator.generate(0, 0, 7L, executor, 4);
+
+            assertSolvableWithoutGuess(grid, 0, 0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testGenerateWithoutRepairNominal() {
+        NoGuessGenerator generator = new NoGuessGenerator(9, 9, 10);
+        generator.setMaxRepairs(0);
+
+        assertSolvableWithoutGuess(generator.generate(4, 4, 3L), 4, 4);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testGenerateFailedNoAttempt() {
+        NoGuessGenerator generator = new NoGuessGenerator(9, 9, 10);
+        generator.setMaxAttempts(0);
+
+        generator.generate(4, 4, 3L);
+    }
+
+    private static void assertSolvableWithoutGuess(Grid grid, int firstHeight, int firstWidth) {
+        int mines = 0;
+        for (byte cell : grid.getCells()) {
+            Assert.assertEquals(0, cell & Grid.REVEALED);
+            mines += (cell & Grid.MINE) != 0 ? 1 : 0;
+        }
+        Assert.assertEquals(grid.getNumberOfMines(), mines);
+        Assert.assertFalse(grid.isMineInCell(firstWidth, firstHeight));
+        Assert.assertEquals(0, grid.getMineAroundNumber(firstWidth, firstHeight));
+
+        Solver solver = new Solver(grid);
+        solver.reveal(firstWidth, firstHeight);
+        Assert.assertEquals(SolveResult.SOLVED, solver.solve());
+    }
+}
@@ -0,0 +1,39 @@
+package com.mlallaouret.minesweeper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SimulatorTest {
+
+    @Test
+    public void testSameSeedSameResults() {
+        Simulator simulator = new Simulator(9, 9, 10);
+
+        SimulationReport firstReport = simulator.run(500, 3L, 2);
+        SimulationReport secondReport = simulator.run(500, 3L, 2);
+
+        Assert.assertEquals(500, firstReport.getGames());
+        Assert.assertEquals(firstReport.getWins(), secondReport.getWins());
+        Assert.assertEquals(firstReport.getGuesses(), secondReport.getGuesses());
+    }
+
+    @Test
+    public void testBeginnerWinRate() {
+        Simulator simulator = new Simulator(9, 9, 10);
+
+        SimulationReport report = simulator.run(2000, 11L, 2);
+
+        Assert.assertTrue(report.getWinRate() > 0.8);
+        Assert.assertTrue(report.getAverageGuesses() > 0);
+    }
+
+    @Test
+    public void testNoGuessOnMineFreeGrid() {
+        Simulator simulator = new Simulator(5, 5, 0);
+
+        SimulationReport report = simulator.run(10, 1L, 1);
+
+        Assert.assertEquals(1.0, report.getWinRate(), 0);
+        Assert.assertEquals(0, report.getGuesses());
+    }
+}
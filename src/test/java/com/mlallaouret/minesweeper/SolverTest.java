@@ -0,0 +1,88 @@
+package com.mlallaouret.minesweeper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SolverTest {
+
+    @Test
+    public void testSolveWithPairRule() {
+        // 1 2 1 pattern under a row of hidden cells
+        Grid grid = new Grid(5, 3, 2);
+        grid.setMineInCell(1, 0, true);
+        grid.setMineInCell(3, 0, true);
+        grid.calculateMineAroundNumber();
+        Solver solver = new Solver(grid);
+
+        solver.reveal(0, 2);
+        SolveResult result = solver.solve();
+
+        Assert.assertEquals(SolveResult.SOLVED, result);
+        Assert.assertTrue(solver.isKnownMine(grid.indexOf(1, 0)));
+        Assert.assertTrue(solver.isKnownMine(grid.indexOf(3, 0)));
+        Assert.assertEquals(2, solver.getKnownMines().cardinality());
+    }
+
+    @Test
+    public void testSolveWithSingleCellRule() {
+        Grid grid = new Grid(2, 1, 1);
+        grid.setMineInCell(0, 0, true);
+        grid.calculateMineAroundNumber();
+        Solver solver = new Solver(grid);
+
+        solver.reveal(1, 0);
+
+        Assert.assertEquals(SolveResult.SOLVED, solver.solve());
+    }
+
+    @Test
+    public void testStuckWhenGuessNeeded() {
+        Grid grid = new Grid(2, 2, 1);
+        grid.setMineInCell(0, 0, true);
+        grid.calculateMineAroundNumber();
+        Solver solver = new Solver(grid);
+
+        solver.reveal(1, 1);
+
+        Assert.assertEquals(SolveResult.STUCK, solver.solve());
+        Assert.assertEquals(0, solver.getDeductions());
+        Assert.assertTrue(solver.getFrontier().get(grid.indexOf(1, 1)));
+    }
+
+    @Test
+    public void testNeverGuessesOnRandomGrids() {
+        int solved = 0;
+        for (long seed = 0; seed < 300; seed++) {
+            Grid grid = new Grid(16, 16, 40, seed);
+            grid.placeMines();
+            grid.calculateMineAroundNumber();
+            int firstClick = firstEmptyCell(grid);
+            if (firstClick < 0) {
+                continue;
+            }
+            Solver solver = new Solver(grid);
+            solver.reveal(grid.widthOf(firstClick), grid.heightOf(firstClick));
+
+            SolveResult result = solver.solve();
+
+            Assert.assertNotEquals(SolveResult.EXPLODED, result);
+            for (int index = solver.getKnownMines().nextSetBit(0); index >= 0;
+                 index = solver.getKnownMines().nextSetBit(index + 1)) {
+                Assert.assertTrue(grid.isMineInCell(grid.widthOf(index), grid.heightOf(index)));
+            }
+            if (result == SolveResult.SOLVED) {
+                solved++;
+            }
+        }
+        Assert.assertTrue(solved > 0);
+    }
+
+    private int firstEmptyCell(Grid grid) {
+        for (int index = 0; index < grid.getCells().length; index++) {
+            if ((grid.getCells()[index] & (Grid.MINE | Grid.MINE_AROUND_MASK)) == 0) {
+                return index;
+            }
+        }
+        return -1;
+    }
+}